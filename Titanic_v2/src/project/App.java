@@ -11,6 +11,15 @@ public class App {
      * @param args Argumentos da linha de comandos (nao utilizados)
      */
     public static void main(String[] args) {
+        // Indexa o ranking.txt em segundo plano, para a tabela de pontuacoes abrir logo,
+        // e passa a compacta-lo quando crescer
+        Thread rankingLoader = new Thread(() -> {
+            RankingService.shared().refresh();
+            RankingCompactor.startShared();
+        }, "ranking-index");
+        rankingLoader.setDaemon(true);
+        rankingLoader.start();
+
         // Cria uma nova janela de boas-vindas para iniciar o jogo
         new WelcomeWindow();
     }
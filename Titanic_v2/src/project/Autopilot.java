@@ -0,0 +1,350 @@
+package project;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * Classe Autopilot - Jogador automatico para testes de carga e de longa duracao
+ * Joga atraves da API do GameEngine com uma BotStrategy. Pode jogar sem ecra,
+ * o mais depressa possivel, ou numa GUI verdadeira para testar o desenho.
+ * Durante o teste mostra, a cada REPORT_INTERVAL, as jogadas por segundo, os
+ * tempos dos frames (so com GUI) e a memoria usada, para apanhar regressoes de
+ * desempenho e fugas de memoria no Map e na GUI.
+ */
+public class Autopilot {
+
+    // Intervalo entre relatorios (nanossegundos)
+    private static final long REPORT_INTERVAL = 1_000_000_000L;
+
+    // Direcoes indexadas por um sorteio de 0 a 3
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Forma de jogar
+    private final BotStrategy strategy;
+
+    // Gerador das jogadas aleatorias e dos desempates
+    private final SplittableRandom random;
+
+    // Caminho do RouteSolver para o mapa atual (estrategia SOLVER)
+    private Map routeMap;
+    private List<Direction> route;
+    private int routeIndex;
+
+    /**
+    * Construtor do Autopilot
+    * @param strategy Forma de jogar
+    * @param seed Semente das escolhas aleatorias
+     */
+    public Autopilot(BotStrategy strategy, long seed) {
+        this.strategy = strategy;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+    * Escolhe a proxima jogada
+    * Deve ser chamado na thread que avanca o motor (ou quando o motor esta parado)
+    * @param engine Motor do jogo
+    * @return Direcao a jogar
+     */
+    public Direction nextMove(GameEngine engine) {
+        Map map = engine.getCurrentMap();
+        switch (strategy) {
+            case GREEDY:
+                return greedyMove(map);
+            case SOLVER:
+                return routeMove(engine, map);
+            default:
+                return DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+        }
+    }
+
+    /**
+    * Escolhe a direcao cuja celula de chegada esta mais perto da ilha
+    * Empates sao decididos ao acaso; sem distancias conhecidas joga ao acaso
+    * @param map Mapa atual
+    * @return Direcao a jogar
+     */
+    private Direction greedyMove(Map map) {
+        Boat boat = map.getBoat();
+        int width = map.getGrid().getWidth();
+        Direction best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        int ties = 0;
+        for (Direction direction : DIRECTIONS) {
+            int row = boat.getRow() + direction.getDRow();
+            int col = boat.getCol() + direction.getDCol();
+            if (!map.canMoveTo(row, col)) {
+                continue;
+            }
+            // Entrar num vortice com rota leva o barco ao destino
+            int landing = map.getRoutes().destination(row * width + col);
+            if (landing >= 0) {
+                row = landing / width;
+                col = landing % width;
+            }
+            int distance = map.getDistanceToIsland(row, col);
+            if (distance < 0) {
+                continue; // Pirata ou sem caminho ate a ilha
+            }
+            if (distance < bestDistance) {
+                best = direction;
+                bestDistance = distance;
+                ties = 1;
+            } else if (distance == bestDistance && random.nextInt(++ties) == 0) {
+                best = direction;
+            }
+        }
+        return best != null ? best : DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+    }
+
+    /**
+    * Segue o caminho do RouteSolver, calculado quando o mapa muda
+    * Se nao ha caminho (ou ja acabou), joga como GREEDY
+    * @param engine Motor do jogo
+    * @param map Mapa atual
+    * @return Direcao a jogar
+     */
+    private Direction routeMove(GameEngine engine, Map map) {
+        if (map != routeMap) {
+            routeMap = map;
+            routeIndex = 0;
+            Route solved = RouteSolver.solve(map, engine.getLives());
+            route = solved.isFound() ? solved.getMoves() : null;
+        }
+        if (route == null || routeIndex >= route.size()) {
+            return greedyMove(map);
+        }
+        return route.get(routeIndex++);
+    }
+
+    /**
+    * Joga sem ecra, o mais depressa possivel
+    * @param strategy Forma de jogar
+    * @param seed Semente (cada jogo usa seed + numero do jogo)
+    * @param games Numero de jogos (0 = sem limite)
+    * @param seconds Duracao maxima em segundos (0 = sem limite)
+    * @param levelFiles Caminhos dos niveis
+    * @param bus Anel onde publicar os acontecimentos dos jogos, ou null
+     */
+    public static void runHeadless(BotStrategy strategy, long seed, long games, long seconds,
+                                   ArrayList<String> levelFiles, EventBus bus) {
+        Report report = new Report(seconds);
+        for (long game = 0; (games == 0 || game < games) && !report.timeUp(); game++) {
+            GameEngine engine = new GameEngine(levelFiles, "autopilot", seed + game);
+            if (bus != null) {
+                bus.connect(engine);
+            }
+            Autopilot bot = new Autopilot(strategy, ~(seed + game));
+            while (!engine.isFinished() && !report.timeUp()) {
+                engine.step(bot.nextMove(engine));
+                report.move(null);
+            }
+            engine.close();
+            report.gameEnded(engine.getState());
+        }
+        report.finish();
+    }
+
+    /**
+    * Joga numa GUI verdadeira (uma janela nova por jogo)
+    * Cada jogada so e enviada depois de a anterior ter sido publicada pela
+    * simulacao, por isso o motor nunca e lido enquanto esta a ser alterado
+    * @param strategy Forma de jogar
+    * @param seed Semente (cada jogo usa seed + numero do jogo)
+    * @param games Numero de jogos (0 = sem limite)
+    * @param seconds Duracao maxima em segundos (0 = sem limite)
+    * @param useGameLoop true para o modo ciclo de jogo
+    * @param delayMillis Pausa entre jogadas (0 = o mais depressa possivel)
+    * @param levelFiles Caminhos dos niveis
+    * @throws InterruptedException Se a thread for interrompida
+    * @throws InvocationTargetException Se a criacao da janela falhar
+     */
+    public static void runWithGui(BotStrategy strategy, long seed, long games, long seconds, boolean useGameLoop,
+                                  long delayMillis, ArrayList<String> levelFiles)
+            throws InterruptedException, InvocationTargetException {
+        Report report = new Report(seconds);
+        for (long game = 0; (games == 0 || game < games) && !report.timeUp(); game++) {
+            GameEngine engine = new GameEngine(levelFiles, "autopilot", seed + game);
+            Autopilot bot = new Autopilot(strategy, ~(seed + game));
+            GUI[] gui = new GUI[1];
+            SwingUtilities.invokeAndWait(() -> {
+                gui[0] = new GUI(engine, "Autopilot", useGameLoop);
+                gui[0].setAutopilot(true);
+            });
+            Simulation simulation = gui[0].getSimulation();
+
+            long submitted = -1;
+            while (!report.timeUp()) {
+                GameSnapshot snapshot = simulation.getLatest();
+                if (snapshot.isFinished()) {
+                    break;
+                }
+                if (snapshot.getVersion() == submitted) {
+                    LockSupport.parkNanos(100_000L); // A jogada anterior ainda nao foi aplicada
+                    continue;
+                }
+                submitted = snapshot.getVersion();
+                simulation.submit(bot.nextMove(engine));
+                report.move(gui[0].getFrameStats());
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            }
+            // Se o tempo acabou a meio do jogo, a janela e fechada aqui
+            SwingUtilities.invokeAndWait(gui[0]::dispose);
+            report.gameEnded(engine.getState());
+        }
+        report.finish();
+    }
+
+    /**
+     * Classe Report - Conta jogadas e jogos e mostra um relatorio a cada REPORT_INTERVAL
+     */
+    private static class Report {
+
+        // Inicio do teste e fim pedido (0 = sem limite)
+        private final long start, deadline;
+
+        // Totais e valores do intervalo atual
+        private long moves, games, completed, intervalMoves, intervalStart, peakHeap;
+
+        // Tempos de desenho do intervalo atual (null sem GUI)
+        private FrameStats frames;
+
+        Report(long seconds) {
+            start = System.nanoTime();
+            intervalStart = start;
+            deadline = seconds > 0 ? start + seconds * 1_000_000_000L : 0;
+        }
+
+        boolean timeUp() {
+            return deadline != 0 && System.nanoTime() >= deadline;
+        }
+
+        void move(FrameStats frameStats) {
+            moves++;
+            intervalMoves++;
+            frames = frameStats;
+            // So consulta o relogio de vez em quando no modo sem ecra
+            if ((intervalMoves & 0x3FF) == 0 || frameStats != null) {
+                long now = System.nanoTime();
+                if (now - intervalStart >= REPORT_INTERVAL) {
+                    print(now);
+                }
+            }
+        }
+
+        void gameEnded(GameState state) {
+            games++;
+            if (state == GameState.COMPLETED) {
+                completed++;
+            }
+        }
+
+        void print(long now) {
+            Runtime runtime = Runtime.getRuntime();
+            long heap = runtime.totalMemory() - runtime.freeMemory();
+            peakHeap = Math.max(peakHeap, heap);
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT,
+                "[%6.1f s] jogos %d (%d completos)  jogadas %d  %.0f jogadas/s  heap %d MB",
+                (now - start) / 1e9, games, completed, moves,
+                intervalMoves * 1e9 / (now - intervalStart), heap >> 20));
+            if (frames != null) {
+                line.append(String.format(Locale.ROOT, "  frames %d  media %.2f ms  p99 %d ms  max %.1f ms",
+                    frames.getCount(), frames.getMeanMillis(), frames.percentileMillis(0.99), frames.getMaxMillis()));
+                frames.reset();
+            }
+            System.out.println(line);
+            intervalMoves = 0;
+            intervalStart = now;
+        }
+
+        void finish() {
+            long now = System.nanoTime();
+            print(now);
+            // Memoria que sobra depois de uma recolha: se cresce de teste para teste, ha uma fuga
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf(Locale.ROOT,
+                "Total: %d jogos, %d jogadas em %.1f s (%.0f jogadas/s), heap maximo %d MB, heap apos GC %d MB%n",
+                games, moves, (now - start) / 1e9, moves * 1e9 / (now - start), peakHeap >> 20,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        }
+    }
+
+    /**
+    * Corre o Autopilot
+    * Uso: java project.Autopilot [-strategy random|greedy|solver] [-games N] [-seconds S]
+    *      [-seed S] [-gui] [-loop] [-delay ms] [-events] [nivel1.txt ...]
+    * Sem niveis, usa os niveis do jogo. Por omissao joga sem ecra durante 30 segundos.
+    * Com -events (sem ecra), os acontecimentos sao publicados num EventBus e contados
+    * por um consumidor noutra thread, para medir o custo do anel.
+    * @param args Opcoes e caminhos dos niveis
+     */
+    public static void main(String[] args) {
+        BotStrategy strategy = BotStrategy.GREEDY;
+        long games = 0, seconds = 30, delay = 0, seed = System.nanoTime();
+        boolean gui = false, loop = false, events = false;
+        ArrayList<String> levelFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-strategy": strategy = BotStrategy.valueOf(args[++i].toUpperCase(Locale.ROOT)); break;
+                    case "-games": games = Long.parseLong(args[++i]); break;
+                    case "-seconds": seconds = Long.parseLong(args[++i]); break;
+                    case "-seed": seed = Long.parseLong(args[++i]); break;
+                    case "-delay": delay = Long.parseLong(args[++i]); break;
+                    case "-gui": gui = true; break;
+                    case "-loop": gui = true; loop = true; break;
+                    case "-events": events = true; break;
+                    default: levelFiles.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Uso: java project.Autopilot [-strategy " + Arrays.toString(BotStrategy.values())
+                + "] [-games N] [-seconds S] [-seed S] [-gui] [-loop] [-delay ms] [-events] [nivel1.txt ...]");
+            System.exit(2);
+        }
+        if (levelFiles.isEmpty()) {
+            levelFiles = GameEngine.defaultLevelFiles();
+        }
+
+        System.out.println("Autopilot " + strategy + (gui ? (loop ? " com GUI (ciclo de jogo)" : " com GUI") : " sem ecra")
+            + ", semente " + seed);
+        if (!gui) {
+            EventBus bus = null;
+            EventProcessor counter = null;
+            long[] counts = new long[GameEventType.values().length];
+            if (events) {
+                bus = new EventBus(1 << 14);
+                counter = bus.subscribe((event, sequence, endOfBatch) -> counts[event.getType().ordinal()]++);
+                counter.start("autopilot-events");
+            }
+            runHeadless(strategy, seed, games, seconds, levelFiles, bus);
+            if (counter != null) {
+                // Espera que o consumidor chegue ao fim do anel antes de mostrar as contagens
+                while (counter.getSequence() < bus.getCursor()) {
+                    LockSupport.parkNanos(1_000_000L);
+                }
+                counter.stop();
+                for (GameEventType type : GameEventType.values()) {
+                    System.out.printf("  %-16s %d%n", type, counts[type.ordinal()]);
+                }
+            }
+            return;
+        }
+        try {
+            runWithGui(strategy, seed, games, seconds, loop, delay, levelFiles);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+        }
+        System.exit(0);
+    }
+}
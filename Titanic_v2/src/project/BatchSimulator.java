@@ -0,0 +1,271 @@
+package project;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Classe BatchSimulator - Simula muitas sessoes sem interface grafica para analisar o equilibrio dos niveis
+ * Cada sessao e um GameEngine com semente propria, jogado por movimentos aleatorios
+ * ou pelas jogadas de um replay (guiao). As sessoes correm em paralelo em todos os
+ * nucleos (parallel stream sobre o ForkJoinPool comum): cada thread tem o seu
+ * BatchStats e os seus geradores, e os niveis sao lidos uma vez e copiados para
+ * cada sessao, por isso nao ha locks partilhados.
+ *
+ * As sessoes sao processadas em blocos; no fim de cada bloco os resultados por
+ * sessao podem ser escritos em CSV, sem guardar milhoes de linhas em memoria.
+ */
+public class BatchSimulator {
+
+    // Numero de sessoes por bloco
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    // Direcoes indexadas por um sorteio de 0 a 3
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Caminhos dos niveis
+    private final ArrayList<String> levelFiles;
+
+    // Niveis ja carregados (so lidos durante a simulacao), copiados para cada sessao
+    private final HashMap<String, LevelData> templates = new HashMap<>();
+
+    // Semente de onde e derivada a semente de cada sessao
+    private final long seed;
+
+    // Numero maximo de jogadas tentadas por sessao (o barco pode ficar preso)
+    private final int maxSteps;
+
+    // Jogadas a seguir em vez de movimentos aleatorios (null = aleatorio)
+    private final Replay script;
+
+    // Resultados do bloco atual, por sessao (cada sessao escreve so na sua posicao)
+    private final byte[] resultState = new byte[BLOCK_SIZE];
+    private final int[] resultLevel = new int[BLOCK_SIZE];
+    private final int[] resultLives = new int[BLOCK_SIZE];
+    private final int[] resultMoves = new int[BLOCK_SIZE];
+
+    /**
+    * Construtor do BatchSimulator
+    * Carrega todos os niveis uma vez
+    * @param levelFiles Caminhos dos niveis
+    * @param seed Semente base
+    * @param maxSteps Numero maximo de jogadas tentadas por sessao
+    * @param script Replay cujas jogadas sao seguidas, ou null para jogar ao acaso
+    * @throws IOException Se algum nivel nao puder ser lido
+     */
+    public BatchSimulator(ArrayList<String> levelFiles, long seed, int maxSteps, Replay script) throws IOException {
+        this.levelFiles = levelFiles;
+        this.seed = seed;
+        this.maxSteps = maxSteps;
+        this.script = script;
+        for (String file : levelFiles) {
+            if (!templates.containsKey(file)) {
+                templates.put(file, LevelLoader.load(file));
+            }
+        }
+    }
+
+    /**
+    * Corre as sessoes e junta as estatisticas
+    * @param games Numero de sessoes
+    * @param sessionsCsv Onde escrever uma linha por sessao, ou null
+    * @return Estatisticas agregadas por nivel
+     */
+    public BatchStats run(long games, PrintWriter sessionsCsv) {
+        BatchStats total = new BatchStats(levelFiles.size());
+        if (sessionsCsv != null) {
+            sessionsCsv.println("session,seed,state,level,lives,moves");
+        }
+        for (long start = 0; start < games; start += BLOCK_SIZE) {
+            long first = start;
+            int count = (int) Math.min(BLOCK_SIZE, games - start);
+            BatchStats block = IntStream.range(0, count).parallel().collect(
+                () -> new BatchStats(levelFiles.size()),
+                (stats, i) -> runSession(stats, first + i, i),
+                BatchStats::merge);
+            total.merge(block);
+
+            if (sessionsCsv != null) {
+                for (int i = 0; i < count; i++) {
+                    sessionsCsv.print(first + i);
+                    sessionsCsv.print(',');
+                    sessionsCsv.print(sessionSeed(first + i));
+                    sessionsCsv.print(',');
+                    sessionsCsv.print(GameState.values()[resultState[i]]);
+                    sessionsCsv.print(',');
+                    sessionsCsv.print(resultLevel[i] + 1);
+                    sessionsCsv.print(',');
+                    sessionsCsv.print(resultLives[i]);
+                    sessionsCsv.print(',');
+                    sessionsCsv.println(resultMoves[i]);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+    * Joga uma sessao ate ao fim (ou ate ao limite de jogadas)
+    * @param stats Estatisticas da thread atual
+    * @param session Numero da sessao
+    * @param slot Posicao da sessao nos resultados do bloco
+     */
+    private void runSession(BatchStats stats, long session, int slot) {
+        long sessionSeed = sessionSeed(session);
+        GameEngine engine = new GameEngine(levelFiles, "batch", sessionSeed, file -> templates.get(file).copy());
+        SessionListener listener = new SessionListener(engine, stats);
+        engine.addListener(listener);
+        stats.recordAttempt(0);
+
+        // Gerador das jogadas separado do gerador do jogo
+        SplittableRandom moves = new SplittableRandom(~sessionSeed);
+        int limit = script != null ? Math.min(maxSteps, script.getMoveCount()) : maxSteps;
+        int moved = 0;
+        for (int step = 0; step < limit && !engine.isFinished(); step++) {
+            Direction direction = script != null ? script.getMove(step) : DIRECTIONS[moves.nextInt(4)];
+            int level = engine.getCurrentLevel();
+            if (engine.step(direction)) {
+                stats.recordMove(level);
+                moved++;
+            }
+        }
+
+        stats.recordSession(engine.getState());
+        resultState[slot] = (byte) engine.getState().ordinal();
+        resultLevel[slot] = engine.getCurrentLevel();
+        resultLives[slot] = engine.getLives();
+        resultMoves[slot] = moved;
+        engine.close();
+    }
+
+    /**
+    * Obtem a semente de uma sessao (mistura a semente base com o numero da sessao)
+    * @param session Numero da sessao
+    * @return Semente da sessao
+     */
+    private long sessionSeed(long session) {
+        // Finalizador do SplitMix64: sementes vizinhas dao geradores independentes
+        long z = seed + session * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Classe SessionListener - Passa os acontecimentos de uma sessao para as estatisticas da thread
+     */
+    private static class SessionListener implements GameListener {
+
+        // Motor da sessao (para saber o nivel atual)
+        private final GameEngine engine;
+
+        // Estatisticas da thread que corre a sessao
+        private final BatchStats stats;
+
+        // Indica se o Game Over foi causado pelo pirata
+        private boolean pirate;
+
+        SessionListener(GameEngine engine, BatchStats stats) {
+            this.engine = engine;
+            this.stats = stats;
+        }
+
+        @Override
+        public void mermaidCollected() {
+            stats.recordMermaid(engine.getCurrentLevel());
+        }
+
+        @Override
+        public void explosiveHit() {
+            stats.recordExplosiveHit(engine.getCurrentLevel());
+        }
+
+        @Override
+        public void pirateHit() {
+            pirate = true;
+        }
+
+        @Override
+        public void levelCompleted(int level) {
+            stats.recordCompletion(level, engine.getLives());
+            if (level + 1 < engine.getLevelFiles().size()) {
+                stats.recordAttempt(level + 1);
+            }
+        }
+
+        @Override
+        public void gameOver(int lives) {
+            stats.recordDeath(engine.getCurrentLevel(), pirate);
+        }
+    }
+
+    /**
+    * Corre a simulacao em lote
+    * Uso: java project.BatchSimulator [-games N] [-seed S] [-max-steps M] [-script jogo.rpl]
+    *      [-csv sessoes.csv] [-summary niveis.csv] [nivel1.txt ...]
+    * Sem niveis, usa os 5 niveis do jogo
+    * @param args Opcoes e caminhos dos niveis
+     */
+    public static void main(String[] args) {
+        long games = 100_000;
+        long seed = System.nanoTime();
+        int maxSteps = 10_000;
+        String scriptFile = null, sessionsFile = null, summaryFile = null;
+        ArrayList<String> levelFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-games": games = Long.parseLong(args[++i]); break;
+                    case "-seed": seed = Long.parseLong(args[++i]); break;
+                    case "-max-steps": maxSteps = Integer.parseInt(args[++i]); break;
+                    case "-script": scriptFile = args[++i]; break;
+                    case "-csv": sessionsFile = args[++i]; break;
+                    case "-summary": summaryFile = args[++i]; break;
+                    default: levelFiles.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("Uso: java project.BatchSimulator [-games N] [-seed S] [-max-steps M]"
+                + " [-script jogo.rpl] [-csv sessoes.csv] [-summary niveis.csv] [nivel1.txt ...]");
+            System.exit(2);
+        }
+        if (levelFiles.isEmpty()) {
+            levelFiles = GameEngine.defaultLevelFiles();
+        }
+
+        try {
+            Replay script = scriptFile == null ? null : Replay.read(Paths.get(scriptFile));
+            BatchSimulator simulator = new BatchSimulator(levelFiles, seed, maxSteps, script);
+            long start = System.nanoTime();
+            BatchStats stats;
+            if (sessionsFile != null) {
+                try (PrintWriter csv = new PrintWriter(new BufferedWriter(
+                        Files.newBufferedWriter(Paths.get(sessionsFile)), 1 << 16))) {
+                    stats = simulator.run(games, csv);
+                }
+            } else {
+                stats = simulator.run(games, null);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            stats.print(System.out);
+            System.out.printf(Locale.ROOT, "%d sessoes em %.2f s (%.0f sessoes/s, semente %d)%n",
+                stats.getSessions(), seconds, stats.getSessions() / seconds, seed);
+
+            if (summaryFile != null) {
+                try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(Paths.get(summaryFile)))) {
+                    stats.writeCsv(csv, levelFiles);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro na simulacao em lote: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package project;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Classe BatchStats - Estatisticas agregadas de muitas sessoes simuladas, por nivel
+ * Cada thread da simulacao em lote enche a sua propria instancia (sem locks)
+ * e no fim as instancias sao juntadas com merge().
+ * Os contadores sao arrays primitivos indexados pelo nivel; a distribuicao
+ * das vidas com que cada nivel e completado e um histograma de 0 a MAX_LIVES.
+ */
+public class BatchStats {
+
+    // Maior numero de vidas com entrada propria no histograma (valores maiores contam aqui)
+    public static final int MAX_LIVES = 255;
+
+    // Numero de niveis
+    private final int levels;
+
+    // Totais por sessao
+    private long sessions, completedGames, gameOvers, unfinished;
+
+    // Contadores por nivel
+    private final long[] attempts, completions, deaths, pirateDeaths, explosiveHits, mermaids, moves;
+
+    // Histograma das vidas ao completar cada nivel [nivel][vidas]
+    private final long[][] livesAtCompletion;
+
+    /**
+    * Construtor do BatchStats
+    * @param levels Numero de niveis
+     */
+    public BatchStats(int levels) {
+        this.levels = levels;
+        attempts = new long[levels];
+        completions = new long[levels];
+        deaths = new long[levels];
+        pirateDeaths = new long[levels];
+        explosiveHits = new long[levels];
+        mermaids = new long[levels];
+        moves = new long[levels];
+        livesAtCompletion = new long[levels][MAX_LIVES + 1];
+    }
+
+    /**
+    * Regista o inicio de um nivel
+    * @param level Indice do nivel
+     */
+    public void recordAttempt(int level) { attempts[level]++; }
+
+    /**
+    * Regista um movimento do barco
+    * @param level Indice do nivel
+     */
+    public void recordMove(int level) { moves[level]++; }
+
+    /**
+    * Regista um explosivo tocado
+    * @param level Indice do nivel
+     */
+    public void recordExplosiveHit(int level) { explosiveHits[level]++; }
+
+    /**
+    * Regista uma sereia apanhada
+    * @param level Indice do nivel
+     */
+    public void recordMermaid(int level) { mermaids[level]++; }
+
+    /**
+    * Regista um nivel completado
+    * @param level Indice do nivel
+    * @param lives Vidas ao chegar a ilha
+     */
+    public void recordCompletion(int level, int lives) {
+        completions[level]++;
+        livesAtCompletion[level][Math.max(0, Math.min(lives, MAX_LIVES))]++;
+    }
+
+    /**
+    * Regista um Game Over
+    * @param level Indice do nivel onde o jogo terminou
+    * @param pirate true se foi causado pelo pirata
+     */
+    public void recordDeath(int level, boolean pirate) {
+        deaths[level]++;
+        if (pirate) {
+            pirateDeaths[level]++;
+        }
+    }
+
+    /**
+    * Regista o fim de uma sessao
+    * @param state Estado final do jogo (PLAYING se a sessao foi interrompida)
+     */
+    public void recordSession(GameState state) {
+        sessions++;
+        if (state == GameState.COMPLETED) {
+            completedGames++;
+        } else if (state == GameState.GAME_OVER) {
+            gameOvers++;
+        } else {
+            unfinished++;
+        }
+    }
+
+    /**
+    * Junta as estatisticas de outra instancia a esta
+    * @param other Estatisticas a juntar (com o mesmo numero de niveis)
+     */
+    public void merge(BatchStats other) {
+        sessions += other.sessions;
+        completedGames += other.completedGames;
+        gameOvers += other.gameOvers;
+        unfinished += other.unfinished;
+        for (int l = 0; l < levels; l++) {
+            attempts[l] += other.attempts[l];
+            completions[l] += other.completions[l];
+            deaths[l] += other.deaths[l];
+            pirateDeaths[l] += other.pirateDeaths[l];
+            explosiveHits[l] += other.explosiveHits[l];
+            mermaids[l] += other.mermaids[l];
+            moves[l] += other.moves[l];
+            for (int v = 0; v <= MAX_LIVES; v++) {
+                livesAtCompletion[l][v] += other.livesAtCompletion[l][v];
+            }
+        }
+    }
+
+    /**
+    * Obtem o numero de sessoes registadas
+    * @return Numero de sessoes
+     */
+    public long getSessions() {
+        return sessions;
+    }
+
+    /**
+    * Calcula um percentil das vidas ao completar um nivel
+    * @param level Indice do nivel
+    * @param p Percentil entre 0 e 1
+    * @return Vidas no percentil, ou -1 se o nivel nunca foi completado
+     */
+    public int livesPercentile(int level, double p) {
+        long total = completions[level];
+        if (total == 0) {
+            return -1;
+        }
+        long target = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int v = 0; v <= MAX_LIVES; v++) {
+            seen += livesAtCompletion[level][v];
+            if (seen >= Math.max(1, target)) {
+                return v;
+            }
+        }
+        return MAX_LIVES;
+    }
+
+    /**
+    * Calcula a media das vidas ao completar um nivel
+    * @param level Indice do nivel
+    * @return Media das vidas, ou 0 se o nivel nunca foi completado
+     */
+    public double livesMean(int level) {
+        if (completions[level] == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int v = 0; v <= MAX_LIVES; v++) {
+            sum += v * livesAtCompletion[level][v];
+        }
+        return (double) sum / completions[level];
+    }
+
+    /**
+    * Mostra um resumo em tabela
+    * @param out Onde escrever
+     */
+    public void print(PrintStream out) {
+        out.printf("Sessoes: %d  completas: %d  game over: %d  interrompidas: %d%n",
+            sessions, completedGames, gameOvers, unfinished);
+        out.printf("%-5s %10s %9s %10s %9s %11s %11s %9s %15s%n", "Nivel", "Tentativas", "Completo",
+            "Game Over", "Pirata", "Explos/mov", "Sereias/t", "Mov/t", "Vidas p10/50/90");
+        for (int l = 0; l < levels; l++) {
+            out.printf("%-5d %10d %8.1f%% %10d %9d %11.4f %11.3f %9.1f %5d/%d/%d%n", l + 1, attempts[l],
+                100.0 * ratio(completions[l], attempts[l]), deaths[l], pirateDeaths[l],
+                ratio(explosiveHits[l], moves[l]), ratio(mermaids[l], attempts[l]), ratio(moves[l], attempts[l]),
+                livesPercentile(l, 0.1), livesPercentile(l, 0.5), livesPercentile(l, 0.9));
+        }
+    }
+
+    /**
+    * Escreve as estatisticas por nivel em CSV (uma linha por nivel)
+    * @param out Onde escrever
+    * @param levelFiles Caminhos dos niveis
+     */
+    public void writeCsv(PrintWriter out, List<String> levelFiles) {
+        out.println("level,file,attempts,completions,completion_rate,game_overs,pirate_deaths,"
+            + "explosive_hits,explosive_hits_per_move,mermaids,moves,lives_mean,lives_p10,lives_p50,lives_p90");
+        for (int l = 0; l < levels; l++) {
+            out.printf(Locale.ROOT, "%d,%s,%d,%d,%.6f,%d,%d,%d,%.6f,%d,%d,%.3f,%d,%d,%d%n",
+                l + 1, levelFiles.get(l), attempts[l], completions[l], ratio(completions[l], attempts[l]),
+                deaths[l], pirateDeaths[l], explosiveHits[l], ratio(explosiveHits[l], moves[l]),
+                mermaids[l], moves[l], livesMean(l),
+                livesPercentile(l, 0.1), livesPercentile(l, 0.5), livesPercentile(l, 0.9));
+        }
+    }
+
+    /**
+    * Divide dois contadores sem dividir por zero
+    * @param a Numerador
+    * @param b Denominador
+    * @return a / b, ou 0 se b for 0
+     */
+    private static double ratio(long a, long b) {
+        return b == 0 ? 0 : (double) a / b;
+    }
+}
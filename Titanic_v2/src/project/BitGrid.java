@@ -0,0 +1,55 @@
+package project;
+
+/**
+ * Classe BitGrid - Conjunto de celulas guardado num array de longs (1 bit por celula)
+ * As celulas sao indexadas pela posicao empacotada (linha * largura + coluna),
+ * por isso consultar uma celula e um unico teste de bit.
+ */
+public class BitGrid {
+
+    // Bits das celulas, 64 por long
+    private final long[] words;
+
+    /**
+    * Construtor da BitGrid (todas as celulas a false)
+    * @param size Numero de celulas
+     */
+    public BitGrid(int size) {
+        words = new long[(size + 63) >>> 6];
+    }
+
+    /**
+    * Consulta uma celula
+    * @param packed Posicao empacotada
+    * @return true se o bit da celula estiver ligado
+     */
+    public boolean get(int packed) {
+        // O deslocamento de um long usa so os 6 bits baixos de "packed"
+        return (words[packed >>> 6] & (1L << packed)) != 0;
+    }
+
+    /**
+    * Liga ou desliga uma celula
+    * @param packed Posicao empacotada
+    * @param value Novo valor do bit
+     */
+    public void set(int packed, boolean value) {
+        if (value) {
+            words[packed >>> 6] |= 1L << packed;
+        } else {
+            words[packed >>> 6] &= ~(1L << packed);
+        }
+    }
+
+    /**
+    * Conta as celulas ligadas
+    * @return Numero de bits ligados
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,13 @@
+package project;
+
+/**
+ * Enum BotStrategy - Forma de jogar do Autopilot
+ * RANDOM escolhe direcoes ao acaso; GREEDY vai sempre para a celula vizinha
+ * mais perto da ilha (pelo campo de distancias do mapa); SOLVER segue o
+ * melhor caminho calculado pelo RouteSolver no inicio de cada nivel.
+ */
+public enum BotStrategy {
+    RANDOM,
+    GREEDY,
+    SOLVER
+}
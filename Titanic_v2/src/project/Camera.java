@@ -0,0 +1,84 @@
+package project;
+
+/**
+ * Classe Camera - Zona do mapa visivel na janela
+ * Guarda a posicao (em pixeis do mundo) do canto superior esquerdo da vista
+ * e desliza suavemente ate ficar centrada no barco, sem sair dos limites do mapa
+ */
+public class Camera {
+
+    // Fracao da distancia ao alvo percorrida em cada passo (deslizamento suave)
+    private static final double EASING = 0.25;
+
+    // Posicao atual da camara (pixeis do mundo)
+    private double x, y;
+
+    // Posicao para onde a camara esta a deslizar
+    private double targetX, targetY;
+
+    /**
+    * Obtem a coordenada x atual da camara
+    * @return Pixel do mundo no canto esquerdo da vista
+     */
+    public int getX() {
+        return (int) Math.round(x);
+    }
+
+    /**
+    * Obtem a coordenada y atual da camara
+    * @return Pixel do mundo no topo da vista
+     */
+    public int getY() {
+        return (int) Math.round(y);
+    }
+
+    /**
+    * Define o alvo da camara para que uma celula fique no centro da vista
+    * @param row Linha da celula a seguir (normalmente o barco, pode ser fracionaria)
+    * @param col Coluna da celula a seguir
+    * @param cellW Largura das celulas em pixeis
+    * @param cellH Altura das celulas em pixeis
+    * @param viewW Largura da vista em pixeis
+    * @param viewH Altura da vista em pixeis
+    * @param worldW Largura do mapa em pixeis
+    * @param worldH Altura do mapa em pixeis
+     */
+    public void follow(double row, double col, int cellW, int cellH, int viewW, int viewH, int worldW, int worldH) {
+        targetX = clamp(col * cellW + cellW / 2.0 - viewW / 2.0, worldW - viewW);
+        targetY = clamp(row * cellH + cellH / 2.0 - viewH / 2.0, worldH - viewH);
+    }
+
+    /**
+    * Coloca a camara imediatamente no alvo (sem deslizar)
+     */
+    public void snap() {
+        x = targetX;
+        y = targetY;
+    }
+
+    /**
+    * Aproxima a camara do alvo
+    * @return true se a camara ainda se esta a mover
+     */
+    public boolean step() {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        if (Math.abs(dx) < 0.5 && Math.abs(dy) < 0.5) {
+            snap();
+            return false;
+        }
+        x += dx * EASING;
+        y += dy * EASING;
+        return true;
+    }
+
+    /**
+    * Limita uma coordenada ao intervalo [0, max]
+    * @param value Coordenada
+    * @param max Valor maximo (se negativo o mapa cabe na vista e fica 0)
+    * @return Coordenada limitada
+     */
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, Math.max(0, max)));
+    }
+}
@@ -0,0 +1,16 @@
+package project;
+
+/**
+ * Interface CellListener - Recebe avisos de celulas do mapa que mudaram
+ * Usada pela vista do mapa para redesenhar apenas as celulas alteradas
+ * (posicao antiga e nova do barco, explosivos gerados ou removidos, sereias apanhadas)
+ */
+public interface CellListener {
+
+    /**
+    * Chamado quando o aspeto de uma celula mudou
+    * @param row Linha da celula
+    * @param col Coluna da celula
+     */
+    void cellChanged(int row, int col);
+}
@@ -0,0 +1,435 @@
+package project;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+
+/**
+ * Classe ChunkedGrid - Grelha paginada em blocos para mundos muito grandes
+ * O mundo e dividido em blocos quadrados (por exemplo 64x64) guardados no disco.
+ * Os blocos sao lidos apenas quando uma celula deles e consultada e ficam numa
+ * cache LRU com um numero maximo de blocos; quando a cache enche, o bloco usado
+ * ha mais tempo e descartado. Assim o mundo pode ser maior do que a memoria
+ * e o consumo fica limitado aos blocos a volta do barco.
+ *
+ * Os blocos alterados (explosivos, sereias) nunca sao escritos no ficheiro original:
+ * ao serem descartados vao para um ficheiro temporario da sessao, de onde sao relidos.
+ *
+ * Formato do ficheiro (.world), little-endian:
+ * - "TTNC" (4 bytes), versao, largura, altura, tamanho do bloco (ints)
+ * - numero de inteiros das rotas de vortices seguido desses inteiros
+ * - numero de elementos seguido de pares (posicao empacotada, simbolo) em ints
+ * - blocos de tamanho*tamanho bytes, bloco a bloco, linha a linha
+ */
+public class ChunkedGrid implements WritableGrid, AutoCloseable {
+
+    // Assinatura no inicio de um ficheiro de mundo ("TTNC")
+    static final int MAGIC = 0x434E5454;
+
+    // Versao atual do formato
+    private static final int VERSION = 1;
+
+    // Tamanho de bloco por omissao (64x64 celulas)
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    // Numero maximo de blocos em memoria por omissao (256 blocos de 64x64 = 1 MB)
+    public static final int DEFAULT_MAX_CHUNKS = 256;
+
+    // Maior lado de bloco aceite ao abrir um mundo (4096x4096 = 16 MB por bloco)
+    private static final int MAX_CHUNK_SIZE = 4096;
+
+    /**
+     * Bloco de celulas em memoria
+     */
+    private static class Chunk {
+        // Celulas do bloco (um byte por celula)
+        final byte[] cells;
+        // Indica se o bloco foi alterado desde que foi lido
+        boolean dirty;
+
+        Chunk(byte[] cells) {
+            this.cells = cells;
+        }
+    }
+
+    // Dimensoes do mundo
+    private final int width;
+    private final int height;
+
+    // Lado de cada bloco e numero de blocos por linha
+    private final int chunkSize;
+    private final int chunksPerRow;
+
+    // Posicao no ficheiro onde comeca o primeiro bloco
+    private final long dataOffset;
+
+    // Ficheiro do mundo (apenas leitura)
+    private final FileChannel source;
+
+    // Ficheiro temporario com os blocos alterados que sairam da cache
+    private FileChannel scratch;
+
+    // Blocos que estao guardados no ficheiro temporario
+    private final BitSet inScratch = new BitSet();
+
+    // Rotas de vortices e elementos lidos do cabecalho
+    private final int[] vortexLinks;
+    private final int[] entityCells;
+
+    // Cache LRU dos blocos em memoria (ordem de acesso)
+    private final LinkedHashMap<Integer, Chunk> cache;
+
+    // Ultimo bloco consultado (evita procurar na cache em acessos seguidos)
+    private int lastIndex = -1;
+    private Chunk lastChunk;
+
+    // Indica se os ficheiros ja foram fechados
+    private boolean closed;
+
+    /**
+    * Abre um ficheiro de mundo paginado
+    * @param file Ficheiro .world
+    * @param maxChunks Numero maximo de blocos em memoria
+    * @throws IOException Se o ficheiro nao puder ser lido ou nao for valido
+     */
+    public ChunkedGrid(Path file, int maxChunks) throws IOException {
+        source = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(0, 24);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Nao e um mundo paginado suportado: " + file);
+            }
+            width = header.getInt();
+            height = header.getInt();
+            chunkSize = header.getInt();
+
+            // O cabecalho vem do disco: dimensoes invalidas dariam divisoes por zero,
+            // alocacoes negativas ou posicoes empacotadas (linha * largura + coluna) que nao cabem num int
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+                throw new IOException("Dimensoes do mundo invalidas: " + width + "x" + height);
+            }
+            if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IOException("Tamanho de bloco invalido: " + chunkSize);
+            }
+            chunksPerRow = (width + chunkSize - 1) / chunkSize;
+
+            long pos = 24;
+            vortexLinks = readInts(pos, header.getInt());
+            pos += vortexLinks.length * 4L;
+            int entityCount = readFully(pos, 4).getInt();
+            pos += 4;
+            if (entityCount < 0 || entityCount > Integer.MAX_VALUE / 2) {
+                throw new IOException("Numero de elementos invalido: " + entityCount);
+            }
+            entityCells = readInts(pos, entityCount * 2);
+            dataOffset = pos + entityCells.length * 4L;
+
+            // As posicoes guardadas tem de estar dentro do mundo
+            long cells = (long) width * height;
+            for (int value : vortexLinks) {
+                if (value < 0 || value >= cells) {
+                    throw new IOException("Rota de vortice fora do mundo: " + value);
+                }
+            }
+            for (int i = 0; i < entityCells.length; i += 2) {
+                if (entityCells[i] < 0 || entityCells[i] >= cells) {
+                    throw new IOException("Elemento fora do mundo: " + entityCells[i]);
+                }
+            }
+
+            // Todos os blocos tem de estar no ficheiro
+            long chunks = (long) chunksPerRow * ((height + chunkSize - 1) / chunkSize);
+            if (source.size() < dataOffset + chunks * chunkSize * chunkSize) {
+                throw new IOException("Mundo paginado truncado: " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+
+        cache = new LinkedHashMap<Integer, Chunk>(maxChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Integer, Chunk> eldest) {
+                if (size() <= maxChunks) {
+                    return false;
+                }
+                evict(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+    * Obtem o simbolo de uma celula
+    * Depois de fechado o mundo devolve 'X': um snapshot antigo ainda pode ser
+    * desenhado enquanto o nivel seguinte e publicado
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @return Simbolo da celula
+     */
+    @Override
+    public synchronized char get(int row, int col) {
+        if (closed) {
+            return 'X';
+        }
+        return (char) (chunkAt(row, col).cells[offsetInChunk(row, col)] & 0xFF);
+    }
+
+    @Override
+    public synchronized void set(int row, int col, char symbol) {
+        Chunk chunk = chunkAt(row, col);
+        chunk.cells[offsetInChunk(row, col)] = (byte) symbol;
+        chunk.dirty = true;
+    }
+
+    /**
+    * Obtem as rotas de vortices guardadas no ficheiro
+    * @return Pares (origem, destino) empacotados
+     */
+    public int[] getVortexLinks() {
+        return vortexLinks;
+    }
+
+    /**
+    * Constroi o indice de elementos a partir da lista guardada no ficheiro
+    * (nao e preciso ler os blocos do mundo)
+    * @return Indice dos elementos do mundo
+     */
+    public EntityIndex readEntityIndex() {
+        EntityIndex index = new EntityIndex(width);
+        for (int i = 0; i < entityCells.length; i += 2) {
+            int packed = entityCells[i];
+            index.add((char) entityCells[i + 1], packed / width, packed % width);
+        }
+        return index;
+    }
+
+    /**
+    * Obtem o numero de blocos em memoria
+    * @return Numero de blocos na cache
+     */
+    public synchronized int residentChunks() {
+        return cache.size();
+    }
+
+    /**
+    * Fecha os ficheiros do mundo e apaga o ficheiro temporario
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        cache.clear();
+        lastChunk = null;
+        lastIndex = -1;
+        source.close();
+        if (scratch != null) {
+            scratch.close();
+        }
+    }
+
+    /**
+    * Obtem o bloco que contem uma celula, lendo-o do disco se necessario
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @return Bloco em memoria
+     */
+    private Chunk chunkAt(int row, int col) {
+        int index = (row / chunkSize) * chunksPerRow + col / chunkSize;
+        if (index == lastIndex) {
+            return lastChunk;
+        }
+        Chunk chunk = cache.get(index);
+        if (chunk == null) {
+            chunk = new Chunk(loadChunk(index));
+            cache.put(index, chunk);
+        }
+        lastIndex = index;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+    * Obtem a posicao de uma celula dentro do seu bloco
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @return Indice da celula no array do bloco
+     */
+    private int offsetInChunk(int row, int col) {
+        return (row % chunkSize) * chunkSize + col % chunkSize;
+    }
+
+    /**
+    * Le um bloco do ficheiro temporario (se foi alterado) ou do ficheiro do mundo
+    * @param index Indice do bloco
+    * @return Celulas do bloco
+     */
+    private byte[] loadChunk(int index) {
+        try {
+            FileChannel channel = inScratch.get(index) ? scratch : source;
+            long offset = (inScratch.get(index) ? 0 : dataOffset) + (long) index * chunkSize * chunkSize;
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize * chunkSize);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Bloco " + index + " truncado");
+                }
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler bloco do mundo", e);
+        }
+    }
+
+    /**
+    * Descarta um bloco da cache, guardando-o no ficheiro temporario se foi alterado
+    * @param index Indice do bloco
+    * @param chunk Bloco a descartar
+     */
+    private void evict(int index, Chunk chunk) {
+        if (index == lastIndex) {
+            lastIndex = -1;
+            lastChunk = null;
+        }
+        if (!chunk.dirty) {
+            return;
+        }
+        try {
+            if (scratch == null) {
+                File temp = File.createTempFile("titanic-world", ".chunks");
+                temp.deleteOnExit();
+                scratch = FileChannel.open(temp.toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk.cells);
+            long offset = (long) index * chunkSize * chunkSize;
+            while (buffer.hasRemaining()) {
+                scratch.write(buffer, offset + buffer.position());
+            }
+            inScratch.set(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao guardar bloco do mundo", e);
+        }
+    }
+
+    /**
+    * Le um numero fixo de bytes do ficheiro do mundo
+    * @param offset Posicao no ficheiro
+    * @param length Numero de bytes
+    * @return Buffer pronto a ler (little-endian)
+    * @throws IOException Se o ficheiro terminar antes
+     */
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Mundo paginado truncado");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+    * Le uma sequencia de inteiros do ficheiro do mundo
+    * @param offset Posicao no ficheiro
+    * @param count Numero de inteiros
+    * @return Inteiros lidos
+    * @throws IOException Se o ficheiro terminar antes
+     */
+    private int[] readInts(long offset, int count) throws IOException {
+        // Um numero maior do que o resto do ficheiro nao pode ser lido (nem alocado)
+        if (count < 0 || count > (source.size() - offset) / 4) {
+            throw new IOException("Mundo paginado invalido");
+        }
+        int[] values = new int[count];
+        readFully(offset, count * 4).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+    * Guarda uma grelha no formato paginado em blocos
+    * @param grid Grelha a guardar
+    * @param vortexLinks Rotas de vortices do nivel
+    * @param file Ficheiro de destino
+    * @param chunkSize Lado de cada bloco
+    * @throws IOException Se o ficheiro nao puder ser escrito
+     */
+    public static void write(GridView grid, int[] vortexLinks, Path file, int chunkSize) throws IOException {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+
+        // Lista de elementos (tudo o que nao e agua nem exterior do mapa)
+        int[] entities = new int[16];
+        int count = 0;
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                char symbol = grid.get(r, c);
+                if (symbol != '.' && symbol != 'X') {
+                    if (count + 2 > entities.length) {
+                        entities = Arrays.copyOf(entities, entities.length * 2);
+                    }
+                    entities[count++] = r * width + c;
+                    entities[count++] = symbol;
+                }
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(28 + vortexLinks.length * 4 + count * 4)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(chunkSize);
+            header.putInt(vortexLinks.length);
+            for (int link : vortexLinks) {
+                header.putInt(link);
+            }
+            header.putInt(count / 2);
+            for (int i = 0; i < count; i++) {
+                header.putInt(entities[i]);
+            }
+            header.flip();
+            writeFully(channel, header);
+
+            // Blocos linha a linha; as partes fora do mundo ficam com 'X'
+            ByteBuffer chunk = ByteBuffer.allocate(chunkSize * chunkSize);
+            for (int chunkRow = 0; chunkRow * chunkSize < height; chunkRow++) {
+                for (int chunkCol = 0; chunkCol * chunkSize < width; chunkCol++) {
+                    chunk.clear();
+                    for (int r = chunkRow * chunkSize; r < (chunkRow + 1) * chunkSize; r++) {
+                        for (int c = chunkCol * chunkSize; c < (chunkCol + 1) * chunkSize; c++) {
+                            chunk.put((byte) (r < height && c < width ? grid.get(r, c) : 'X'));
+                        }
+                    }
+                    chunk.flip();
+                    writeFully(channel, chunk);
+                }
+            }
+        }
+    }
+
+    /**
+    * Escreve todo o conteudo de um buffer num canal
+    * @param channel Canal de destino
+    * @param buffer Buffer a escrever
+    * @throws IOException Se a escrita falhar
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package project;
+
+/**
+ * Enum Direction - Direcoes em que o barco se pode mover
+ * Cada direcao e um comando imutavel e pre-criado, por isso enviar
+ * uma jogada para a simulacao nao cria objetos novos
+ */
+public enum Direction {
+    UP(-1, 0),
+    DOWN(1, 0),
+    LEFT(0, -1),
+    RIGHT(0, 1);
+
+    // Deslocamento na linha
+    private final int dRow;
+
+    // Deslocamento na coluna
+    private final int dCol;
+
+    /**
+    * Construtor da Direction
+    * @param dRow Deslocamento na linha
+    * @param dCol Deslocamento na coluna
+     */
+    Direction(int dRow, int dCol) {
+        this.dRow = dRow;
+        this.dCol = dCol;
+    }
+
+    /**
+    * Obtem o deslocamento na linha
+    * @return -1, 0 ou 1
+     */
+    public int getDRow() {
+        return dRow;
+    }
+
+    /**
+    * Obtem o deslocamento na coluna
+    * @return -1, 0 ou 1
+     */
+    public int getDCol() {
+        return dCol;
+    }
+}
@@ -0,0 +1,132 @@
+package project;
+import java.util.Arrays;
+
+/**
+ * Classe DistanceField - Distancia (em jogadas) de cada celula a ilha mais proxima
+ * Calculada uma vez por BFS a partir de todas as ilhas, andando "para tras":
+ * a partir de uma celula ja com distancia, as celulas vizinhas de onde o barco
+ * la pode chegar ficam com mais uma jogada. Os vortices sao tidos em conta
+ * (entrar num vortice com rota leva o barco ao vortice de destino).
+ * So passa por celulas seguras (agua, sereias, explosivos, vortices): rochas,
+ * fora do mapa e o pirata sao evitados.
+ *
+ * Consultar a distancia e O(1). Durante o jogo as celulas so mudam entre agua,
+ * sereia e explosivo, que sao todas seguras, por isso o campo nunca muda depois
+ * de calculado. Para a BFS nao percorrer todos os vortices em cada celula, os
+ * vortices com rota sao indexados pelo destino (destino -> vortices de origem).
+ */
+public class DistanceField {
+
+    // Valor interno das celulas sem caminho ate a ilha
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Deslocamentos das 4 direcoes
+    private static final int[] D_ROW = {-1, 1, 0, 0};
+    private static final int[] D_COL = {0, 0, -1, 1};
+
+    // Dimensoes do mapa
+    private final int width, height;
+
+    // Distancia de cada celula a ilha mais proxima
+    private final int[] distance;
+
+    /**
+    * Construtor do DistanceField (calcula logo o campo)
+    * @param width Largura do mapa
+    * @param height Altura do mapa
+    * @param safe Celulas seguras
+    * @param entities Indice dos elementos do mapa
+    * @param routes Rotas dos vortices
+     */
+    public DistanceField(int width, int height, BitGrid safe, EntityIndex entities, VortexRoutes routes) {
+        this.width = width;
+        this.height = height;
+        distance = new int[width * height];
+        Arrays.fill(distance, UNREACHABLE);
+
+        // Indice inverso das rotas: pares (destino, origem) ordenados pelo destino,
+        // e a primeira posicao de cada destino numa IntIntHashMap
+        int vortexCount = entities.count('V');
+        long[] pairs = new long[vortexCount];
+        int routed = 0;
+        for (int i = 0; i < vortexCount; i++) {
+            int vortex = entities.get('V', i);
+            int destination = routes.destination(vortex);
+            if (destination >= 0 && safe.get(vortex)) {
+                pairs[routed++] = (long) destination << 32 | vortex;
+            }
+        }
+        Arrays.sort(pairs, 0, routed);
+        IntIntHashMap firstSource = new IntIntHashMap(routed);
+        for (int i = 0; i < routed; i++) {
+            int destination = (int) (pairs[i] >>> 32);
+            if (i == 0 || (int) (pairs[i - 1] >>> 32) != destination) {
+                firstSource.put(destination, i);
+            }
+        }
+
+        // BFS a partir de todas as ilhas (cada celula entra na fila no maximo uma vez)
+        int[] queue = new int[width * height];
+        int head = 0, tail = 0;
+        for (int i = 0; i < entities.count('I'); i++) {
+            int island = entities.get('I', i);
+            if (distance[island] == UNREACHABLE) {
+                distance[island] = 0;
+                queue[tail++] = island;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = distance[cell] + 1;
+            // O barco chega a "cell" entrando nela (se nao for um vortice com rota)
+            if (routes.destination(cell) < 0) {
+                tail = relaxAround(cell, next, safe, queue, tail);
+            }
+            // ou entrando num vortice cuja rota termina nela
+            int first = firstSource.get(cell, -1);
+            if (first >= 0) {
+                for (int i = first; i < routed && (int) (pairs[i] >>> 32) == cell; i++) {
+                    tail = relaxAround((int) pairs[i], next, safe, queue, tail);
+                }
+            }
+        }
+    }
+
+    /**
+    * Obtem a distancia de uma celula a ilha mais proxima
+    * @param packed Posicao empacotada
+    * @return Numero minimo de jogadas ate a ilha, ou -1 se nao ha caminho
+     */
+    public int distance(int packed) {
+        int d = distance[packed];
+        return d == UNREACHABLE ? -1 : d;
+    }
+
+    /**
+    * Da uma distancia as celulas seguras vizinhas de uma entrada que ainda nao a tem
+    * (na BFS a primeira distancia dada a uma celula e a menor)
+    * @param entry Celula onde o barco entra
+    * @param candidate Distancia das celulas vizinhas passando por essa entrada
+    * @param safe Celulas seguras
+    * @param queue Fila da BFS
+    * @param tail Fim da fila
+    * @return Novo fim da fila
+     */
+    private int relaxAround(int entry, int candidate, BitGrid safe, int[] queue, int tail) {
+        int row = entry / width;
+        int col = entry - row * width;
+        for (int d = 0; d < 4; d++) {
+            int r = row + D_ROW[d];
+            int c = col + D_COL[d];
+            if (r < 0 || r >= height || c < 0 || c >= width) {
+                continue;
+            }
+            int neighbour = r * width + c;
+            if (safe.get(neighbour) && distance[neighbour] == UNREACHABLE) {
+                distance[neighbour] = candidate;
+                queue[tail++] = neighbour;
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,198 @@
+package project;
+import java.util.Arrays;
+
+/**
+ * Classe EntityIndex - Indice das posicoes dos elementos do mapa por simbolo
+ * Para cada simbolo (B, V, M, P, E, I, R, ...) guarda um array de inteiros
+ * com as posicoes empacotadas (linha * largura + coluna) das celulas com esse simbolo.
+ * A agua ('.') e o exterior do mapa ('X') nao sao indexados.
+ * O indice e construido numa unica passagem pela grelha e atualizado sempre
+ * que uma celula muda, evitando percorrer o mapa inteiro em cada consulta.
+ *
+ * fork() cria uma copia para uma sessao que partilha os arrays do original
+ * (nivel modelo, nunca mais alterado) e so copia o array de um simbolo quando
+ * a sessao o altera (normalmente apenas sereias e explosivos).
+ */
+public class EntityIndex {
+
+    // Capacidade inicial do array de posicoes de cada simbolo
+    private static final int INITIAL_CAPACITY = 4;
+
+    // Largura do mapa (usada para empacotar linha/coluna num inteiro)
+    private final int width;
+
+    // Posicoes empacotadas de cada simbolo (indexado pelo codigo do char)
+    private final int[][] positions;
+
+    // Numero de posicoes guardadas para cada simbolo
+    private final int[] counts;
+
+    // Simbolos cujo array ainda e o do indice original (null se nao e uma copia)
+    private final boolean[] shared;
+
+    /**
+    * Construtor do EntityIndex
+    * @param width Largura do mapa
+     */
+    public EntityIndex(int width) {
+        this.width = width;
+        this.positions = new int[128][];
+        this.counts = new int[128];
+        this.shared = null;
+    }
+
+    /**
+    * Construtor de uma copia copy-on-write (ver fork())
+    * @param base Indice original (nunca mais alterado)
+     */
+    private EntityIndex(EntityIndex base) {
+        this.width = base.width;
+        this.positions = base.positions.clone();
+        this.counts = base.counts.clone();
+        this.shared = new boolean[128];
+        Arrays.fill(shared, true);
+    }
+
+    /**
+    * Cria uma copia que pode ser alterada sem alterar este indice
+    * Este indice passa a ser so lido (pode ser partilhado entre threads)
+    * @return Copia que so copia os simbolos que forem alterados
+     */
+    public EntityIndex fork() {
+        return new EntityIndex(this);
+    }
+
+    /**
+    * Numa copia, copia o array de um simbolo antes da primeira alteracao
+    * @param symbol Simbolo a alterar
+     */
+    private void own(char symbol) {
+        if (shared != null && shared[symbol]) {
+            shared[symbol] = false;
+            if (positions[symbol] != null) {
+                positions[symbol] = positions[symbol].clone();
+            }
+        }
+    }
+
+    /**
+    * Verifica se um simbolo e guardado no indice
+    * @param symbol Simbolo a verificar
+    * @return true se o simbolo e indexado
+     */
+    private static boolean isIndexed(char symbol) {
+        return symbol < 128 && symbol != '.' && symbol != 'X';
+    }
+
+    /**
+    * Adiciona uma celula ao indice
+    * @param symbol Simbolo da celula
+    * @param row Linha da celula
+    * @param col Coluna da celula
+     */
+    public void add(char symbol, int row, int col) {
+        if (!isIndexed(symbol)) {
+            return;
+        }
+        own(symbol);
+        int[] list = positions[symbol];
+        if (list == null) {
+            list = new int[INITIAL_CAPACITY];
+            positions[symbol] = list;
+        } else if (counts[symbol] == list.length) {
+            // Duplica a capacidade quando o array fica cheio
+            list = Arrays.copyOf(list, list.length * 2);
+            positions[symbol] = list;
+        }
+        list[counts[symbol]++] = row * width + col;
+    }
+
+    /**
+    * Remove uma celula do indice (troca com a ultima posicao, O(k))
+    * @param symbol Simbolo da celula
+    * @param row Linha da celula
+    * @param col Coluna da celula
+     */
+    public void remove(char symbol, int row, int col) {
+        if (!isIndexed(symbol)) {
+            return;
+        }
+        own(symbol);
+        int[] list = positions[symbol];
+        int packed = row * width + col;
+        for (int i = 0; i < counts[symbol]; i++) {
+            if (list[i] == packed) {
+                // Substitui pela ultima posicao para nao deslocar o array
+                list[i] = list[--counts[symbol]];
+                return;
+            }
+        }
+    }
+
+    /**
+    * Obtem o numero de celulas com um simbolo
+    * @param symbol Simbolo a contar
+    * @return Numero de celulas com esse simbolo
+     */
+    public int count(char symbol) {
+        return isIndexed(symbol) ? counts[symbol] : 0;
+    }
+
+    /**
+    * Obtem a posicao empacotada de uma celula com um simbolo
+    * @param symbol Simbolo
+    * @param i Indice entre 0 e count(symbol) - 1
+    * @return Posicao empacotada (linha * largura + coluna)
+     */
+    public int get(char symbol, int i) {
+        return positions[symbol][i];
+    }
+
+    /**
+    * Obtem a primeira posicao encontrada de um simbolo
+    * @param symbol Simbolo a procurar
+    * @return Posicao empacotada, ou -1 se nao existir
+     */
+    public int first(char symbol) {
+        return count(symbol) > 0 ? positions[symbol][0] : -1;
+    }
+
+    /**
+    * Procura a celula com um simbolo mais proxima de uma posicao (distancia Manhattan)
+    * @param symbol Simbolo a procurar
+    * @param row Linha de referencia
+    * @param col Coluna de referencia
+    * @return Posicao empacotada mais proxima, ou -1 se nao existir
+     */
+    public int nearest(char symbol, int row, int col) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < count(symbol); i++) {
+            int p = positions[symbol][i];
+            int distance = Math.abs(rowOf(p) - row) + Math.abs(colOf(p) - col);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+    * Obtem a linha de uma posicao empacotada
+    * @param packed Posicao empacotada
+    * @return Linha
+     */
+    public int rowOf(int packed) {
+        return packed / width;
+    }
+
+    /**
+    * Obtem a coluna de uma posicao empacotada
+    * @param packed Posicao empacotada
+    * @return Coluna
+     */
+    public int colOf(int packed) {
+        return packed % width;
+    }
+}
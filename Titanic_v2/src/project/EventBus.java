@@ -0,0 +1,181 @@
+package project;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Classe EventBus - Anel de eventos do jogo com um produtor e varios consumidores
+ * Segue a ideia do Disruptor: os eventos sao objetos pre-alocados num anel e o
+ * produtor apenas reescreve os campos primitivos da proxima posicao e avanca o
+ * cursor, por isso publicar nao aloca. Cada consumidor (EventProcessor) tem a
+ * sua propria sequencia e le ao seu ritmo; o produtor so espera quando daria a
+ * volta ao anel por cima do consumidor mais atrasado.
+ *
+ * So pode haver um produtor (a thread que avanca o motor). Um consumidor
+ * subscrito tem de continuar a consumir (ou cancelar a subscricao), senao o
+ * produtor acaba por ficar a espera.
+ *
+ * A GUI liga o seu motor a um anel (connect) e o ReplayRecorder grava o jogo
+ * a partir dele; novos observadores so precisam de se subscrever.
+ */
+public class EventBus {
+
+    // Eventos pre-alocados (o tamanho e uma potencia de 2)
+    private final GameEvent[] ring;
+
+    // Mascara para obter a posicao no anel a partir da sequencia
+    private final int mask;
+
+    // Sequencia do ultimo evento publicado
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    // Sequencia do ultimo evento reservado (so usada pelo produtor)
+    private long next = -1;
+
+    // Menor sequencia dos consumidores na ultima consulta (evita le-las em cada publicacao)
+    private long cachedGating = -1;
+
+    // Consumidores subscritos (copiado ao alterar)
+    private volatile EventProcessor[] processors = new EventProcessor[0];
+
+    /**
+    * Construtor do EventBus
+    * @param capacity Numero de eventos no anel (potencia de 2)
+    * @throws IllegalArgumentException Se a capacidade nao for uma potencia de 2
+     */
+    public EventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("A capacidade tem de ser uma potencia de 2: " + capacity);
+        }
+        ring = new GameEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new GameEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+    * Subscreve um consumidor; recebe os eventos publicados a partir de agora
+    * @param handler Quem consome os eventos
+    * @return Consumidor (chamar start() ou poll() para consumir)
+     */
+    public synchronized EventProcessor subscribe(EventHandler handler) {
+        EventProcessor processor = new EventProcessor(this, handler, cursor.get());
+        EventProcessor[] grown = Arrays.copyOf(processors, processors.length + 1);
+        grown[processors.length] = processor;
+        processors = grown;
+        return processor;
+    }
+
+    /**
+    * Cancela a subscricao de um consumidor (o produtor deixa de esperar por ele)
+    * @param processor Consumidor a remover
+     */
+    public synchronized void unsubscribe(EventProcessor processor) {
+        EventProcessor[] current = processors;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == processor) {
+                EventProcessor[] shrunk = new EventProcessor[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+                processors = shrunk;
+                return;
+            }
+        }
+    }
+
+    /**
+    * Publica um evento (so pode ser chamado pela thread produtora)
+    * @param type Tipo do acontecimento
+    * @param level Nivel atual
+    * @param row Linha do barco
+    * @param col Coluna do barco
+    * @param direction Ordinal da direcao, ou -1
+    * @param delta Variacao das vidas
+    * @param lives Vidas atuais
+     */
+    public void publish(GameEventType type, int level, int row, int col, int direction, int delta, int lives) {
+        long sequence = ++next;
+        // Espera se a posicao ainda nao foi consumida por todos (anel cheio)
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint > cachedGating) {
+            long gating;
+            while (wrapPoint > (gating = minimumSequence(sequence - 1))) {
+                LockSupport.parkNanos(1L);
+            }
+            cachedGating = gating;
+        }
+        ring[(int) sequence & mask].set(type, level, row, col, direction, delta, lives);
+        // Torna o evento visivel aos consumidores depois de escrito
+        cursor.lazySet(sequence);
+    }
+
+    /**
+    * Obtem a capacidade do anel
+    * @return Numero de eventos no anel
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+    * Obtem a sequencia do ultimo evento publicado
+    * @return Sequencia (-1 se ainda nao houve eventos)
+     */
+    long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+    * Obtem o evento de uma sequencia
+    * @param sequence Sequencia do evento
+    * @return Posicao do anel com o evento
+     */
+    GameEvent get(long sequence) {
+        return ring[(int) sequence & mask];
+    }
+
+    /**
+    * Calcula a menor sequencia dos consumidores
+    * @param fallback Valor devolvido se nao houver consumidores
+    * @return Sequencia do consumidor mais atrasado
+     */
+    private long minimumSequence(long fallback) {
+        long minimum = fallback;
+        for (EventProcessor processor : processors) {
+            minimum = Math.min(minimum, processor.getSequence());
+        }
+        return minimum;
+    }
+
+    /**
+    * Liga o motor do jogo a este anel: os acontecimentos do motor passam a ser publicados aqui
+    * O motor e avancado por uma unica thread, que e o produtor
+    * @param engine Motor do jogo
+    * @return Listener registado no motor (para o poder remover)
+     */
+    public GameListener connect(GameEngine engine) {
+        GameListener listener = new GameListener() {
+            // Vidas no ultimo evento, para calcular a variacao
+            private int lastLives = engine.getLives();
+
+            private void publish(GameEventType type, int direction, int lives) {
+                Boat boat = engine.getCurrentMap().getBoat();
+                EventBus.this.publish(type, engine.getCurrentLevel(), boat == null ? -1 : boat.getRow(),
+                    boat == null ? -1 : boat.getCol(), direction, lives - lastLives, lives);
+                lastLives = lives;
+            }
+
+            @Override public void beforeStep(Direction direction) { publish(GameEventType.MOVE, direction.ordinal(), lastLives); }
+            @Override public void livesChanged(int lives) { publish(GameEventType.LIVES_CHANGED, -1, lives); }
+            @Override public void mermaidCollected() { publish(GameEventType.MERMAID, -1, lastLives); }
+            @Override public void explosiveHit() { publish(GameEventType.EXPLOSIVE, -1, lastLives); }
+            @Override public void pirateHit() { publish(GameEventType.PIRATE, -1, lastLives); }
+            @Override public void levelCompleted(int level) { publish(GameEventType.LEVEL_COMPLETED, -1, lastLives); }
+            @Override public void gameCompleted(int lives) { publish(GameEventType.GAME_COMPLETED, -1, lives); }
+            @Override public void gameOver(int lives) { publish(GameEventType.GAME_OVER, -1, lives); }
+        };
+        engine.addListener(listener);
+        return listener;
+    }
+}
@@ -0,0 +1,16 @@
+package project;
+
+/**
+ * Interface EventHandler - Consome os eventos de um EventBus
+ */
+public interface EventHandler {
+
+    /**
+    * Chamado para cada evento, pela ordem em que foram publicados
+    * O evento e reutilizado pelo anel: os valores devem ser copiados se forem precisos depois
+    * @param event Evento publicado
+    * @param sequence Numero de sequencia do evento
+    * @param endOfBatch true se e o ultimo evento disponivel neste momento (bom para fazer flush)
+     */
+    void onEvent(GameEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,115 @@
+package project;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Classe EventProcessor - Um consumidor do EventBus, com a sua propria sequencia
+ * Le os eventos publicados depois da sua sequencia e entrega-os ao EventHandler.
+ * Pode correr numa thread propria (start) ou ser chamado por quem quiser
+ * consumir noutra thread (poll), por exemplo num Timer do Swing.
+ */
+public class EventProcessor implements Runnable {
+
+    // Tempo de espera quando nao ha eventos novos (nanossegundos)
+    private static final long IDLE_WAIT_NANOS = 50_000L;
+
+    // Anel de onde os eventos sao lidos
+    private final EventBus bus;
+
+    // Quem consome os eventos
+    private final EventHandler handler;
+
+    // Ultimo evento consumido (o produtor nunca reescreve posicoes ainda nao consumidas)
+    private final AtomicLong sequence;
+
+    // Indica se a thread do consumidor deve continuar
+    private volatile boolean running;
+
+    // Thread do consumidor (null se consome por poll())
+    private Thread thread;
+
+    /**
+    * Construtor do EventProcessor (usado pelo EventBus ao subscrever)
+    * @param bus Anel de eventos
+    * @param handler Quem consome os eventos
+    * @param start Sequencia a partir da qual consumir (exclusive)
+     */
+    EventProcessor(EventBus bus, EventHandler handler, long start) {
+        this.bus = bus;
+        this.handler = handler;
+        this.sequence = new AtomicLong(start);
+    }
+
+    /**
+    * Obtem a sequencia do ultimo evento consumido
+    * @return Sequencia
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+    * Consome todos os eventos ja publicados, de uma vez
+    * @return Numero de eventos consumidos
+     */
+    public int poll() {
+        long available = bus.getCursor();
+        long current = sequence.get();
+        if (available <= current) {
+            return 0;
+        }
+        for (long s = current + 1; s <= available; s++) {
+            handler.onEvent(bus.get(s), s, s == available);
+        }
+        // So depois de consumir o lote e que o produtor pode reutilizar estas posicoes
+        sequence.lazySet(available);
+        return (int) (available - current);
+    }
+
+    /**
+    * Inicia uma thread que consome os eventos ate stop() ser chamado
+    * @param name Nome da thread
+     */
+    public void start(String name) {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+    * Pede a paragem da thread do consumidor (os eventos ja publicados sao consumidos antes)
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+    * Para a thread do consumidor e espera que consuma os eventos ja publicados
+    * Deve ser chamado depois de o produtor parar, para nao perder os ultimos eventos
+     */
+    public void stopAndWait() {
+        stop();
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+    * Ciclo da thread do consumidor
+     */
+    @Override
+    public void run() {
+        while (running) {
+            if (poll() == 0) {
+                LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+            }
+        }
+        poll();
+    }
+}
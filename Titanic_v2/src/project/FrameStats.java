@@ -0,0 +1,82 @@
+package project;
+import java.util.Arrays;
+
+/**
+ * Classe FrameStats - Tempos de desenho dos frames
+ * Guarda o numero de frames, a soma, o maximo e um histograma por milissegundo
+ * (ate MAX_MILLIS), tudo em tipos primitivos, por isso registar um frame nao aloca.
+ * Os frames sao registados na thread que desenha e lidos por quem mostra o relatorio.
+ */
+public class FrameStats {
+
+    // Maior tempo com entrada propria no histograma (frames mais lentos contam aqui)
+    private static final int MAX_MILLIS = 250;
+
+    // Numero de frames em cada milissegundo
+    private final long[] histogram = new long[MAX_MILLIS + 1];
+
+    // Numero de frames, soma e maximo dos tempos
+    private long count, totalNanos, maxNanos;
+
+    /**
+    * Regista o tempo de um frame
+    * @param nanos Tempo do frame em nanossegundos
+     */
+    public synchronized void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        histogram[(int) Math.min(nanos / 1_000_000L, MAX_MILLIS)]++;
+    }
+
+    /**
+    * Obtem o numero de frames registados
+    * @return Numero de frames
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+    * Obtem o tempo medio de um frame
+    * @return Media em milissegundos (0 sem frames)
+     */
+    public synchronized double getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+
+    /**
+    * Obtem o tempo do frame mais lento
+    * @return Maximo em milissegundos
+     */
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    /**
+    * Obtem um percentil dos tempos (com resolucao de 1 ms)
+    * @param p Percentil entre 0 e 1
+    * @return Limite superior, em milissegundos, do intervalo onde cai o percentil
+     */
+    public synchronized int percentileMillis(double p) {
+        long target = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int ms = 0; ms <= MAX_MILLIS; ms++) {
+            seen += histogram[ms];
+            if (seen >= target) {
+                return ms + 1;
+            }
+        }
+        return MAX_MILLIS + 1;
+    }
+
+    /**
+    * Apaga os frames registados (para medir o intervalo seguinte)
+     */
+    public synchronized void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        Arrays.fill(histogram, 0);
+    }
+}
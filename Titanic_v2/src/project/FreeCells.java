@@ -0,0 +1,193 @@
+package project;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Classe FreeCells - Conjunto indexado das celulas de agua livres ('.')
+ * As posicoes empacotadas estao num array denso e cada posicao sabe o seu
+ * indice nesse array, por isso adicionar, remover (trocando com a ultima)
+ * e escolher uma celula aleatoria sao operacoes de tempo constante.
+ *
+ * Um conjunto pode ser partilhado por varias sessoes (nivel modelo) com fork():
+ * a copia le os arrays do original, que nunca mais e alterado, e guarda as
+ * entradas que mudou em duas IntIntHashMap. A copia comporta-se exatamente como
+ * uma copia inteira, mas so ocupa memoria com as entradas que a sessao tocou.
+ */
+public class FreeCells {
+
+    // Posicoes livres empacotadas, guardadas nas primeiras "size" entradas
+    private final int[] cells;
+
+    // Indice de cada posicao no array "cells" (-1 se a celula nao esta livre)
+    private final int[] slotOf;
+
+    // Numero de celulas livres
+    private int size;
+
+    // Entradas alteradas de "cells" e de "slotOf" (null se os arrays sao deste conjunto)
+    private final IntIntHashMap cellsChanged;
+    private final IntIntHashMap slotsChanged;
+
+    /**
+    * Construtor do FreeCells
+    * @param capacity Numero total de celulas do mapa
+     */
+    public FreeCells(int capacity) {
+        cells = new int[capacity];
+        slotOf = new int[capacity];
+        Arrays.fill(slotOf, -1);
+        cellsChanged = null;
+        slotsChanged = null;
+    }
+
+    /**
+    * Construtor de uma copia copy-on-write (ver fork())
+    * @param base Conjunto original (nunca mais alterado)
+     */
+    private FreeCells(FreeCells base) {
+        cells = base.cells;
+        slotOf = base.slotOf;
+        size = base.size;
+        cellsChanged = new IntIntHashMap(16);
+        slotsChanged = new IntIntHashMap(16);
+    }
+
+    /**
+    * Cria uma copia que pode ser alterada sem alterar este conjunto
+    * Este conjunto passa a ser so lido (pode ser partilhado entre threads)
+    * @return Copia que guarda apenas as entradas alteradas
+     */
+    public FreeCells fork() {
+        if (cellsChanged != null) {
+            throw new IllegalStateException("So e possivel copiar um conjunto original");
+        }
+        return new FreeCells(this);
+    }
+
+    /**
+    * Obtem o numero de celulas livres
+    * @return Numero de celulas livres
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+    * Verifica se uma posicao esta livre
+    * @param packed Posicao empacotada
+    * @return true se a celula esta no conjunto
+     */
+    public boolean contains(int packed) {
+        return slot(packed) >= 0;
+    }
+
+    /**
+    * Adiciona uma posicao ao conjunto
+    * @param packed Posicao empacotada
+     */
+    public void add(int packed) {
+        if (slot(packed) >= 0) {
+            return;
+        }
+        setCell(size, packed);
+        setSlot(packed, size);
+        size++;
+    }
+
+    /**
+    * Remove uma posicao do conjunto trocando-a com a ultima
+    * @param packed Posicao empacotada
+     */
+    public void remove(int packed) {
+        int slot = slot(packed);
+        if (slot < 0) {
+            return;
+        }
+        size--;
+        swap(slot, size);
+        setSlot(packed, -1);
+    }
+
+    /**
+    * Escolhe uma celula livre aleatoria, ignorando algumas posicoes
+    * As posicoes excluidas sao trocadas para o fim da zona livre e o sorteio
+    * e feito apenas no inicio, por isso nunca e preciso voltar a tentar
+    * @param random Gerador de numeros aleatorios
+    * @param excluded Posicoes empacotadas a ignorar
+    * @param excludedCount Numero de posicoes validas em "excluded"
+    * @return Posicao empacotada escolhida, ou -1 se nao houver celula disponivel
+     */
+    public int randomExcluding(RandomGenerator random, int[] excluded, int excludedCount) {
+        int available = size;
+        for (int i = 0; i < excludedCount; i++) {
+            int slot = slot(excluded[i]);
+            // Ignora posicoes que nao estao livres ou ja foram afastadas
+            if (slot >= 0 && slot < available) {
+                available--;
+                swap(slot, available);
+            }
+        }
+        if (available == 0) {
+            return -1; // Nao ha espaco livre
+        }
+        return cell(random.nextInt(available));
+    }
+
+    /**
+    * Troca duas entradas do array denso e atualiza os seus indices
+    * @param a Primeira entrada
+    * @param b Segunda entrada
+     */
+    private void swap(int a, int b) {
+        int pa = cell(a);
+        int pb = cell(b);
+        setCell(a, pb);
+        setCell(b, pa);
+        setSlot(pb, a);
+        setSlot(pa, b);
+    }
+
+    /**
+    * Obtem a posicao guardada numa entrada do array denso
+    * @param i Entrada
+    * @return Posicao empacotada
+     */
+    private int cell(int i) {
+        return cellsChanged == null ? cells[i] : cellsChanged.get(i, cells[i]);
+    }
+
+    /**
+    * Obtem a entrada de uma posicao no array denso
+    * @param packed Posicao empacotada
+    * @return Entrada, ou -1 se a celula nao esta livre
+     */
+    private int slot(int packed) {
+        return slotsChanged == null ? slotOf[packed] : slotsChanged.get(packed, slotOf[packed]);
+    }
+
+    /**
+    * Guarda uma posicao numa entrada do array denso
+    * @param i Entrada
+    * @param packed Posicao empacotada
+     */
+    private void setCell(int i, int packed) {
+        if (cellsChanged == null) {
+            cells[i] = packed;
+        } else {
+            cellsChanged.put(i, packed);
+        }
+    }
+
+    /**
+    * Guarda a entrada de uma posicao no array denso
+    * @param packed Posicao empacotada
+    * @param slot Entrada, ou -1 se a celula deixou de estar livre
+     */
+    private void setSlot(int packed, int slot) {
+        if (slotsChanged == null) {
+            slotOf[packed] = slot;
+        } else {
+            slotsChanged.put(packed, slot);
+        }
+    }
+}
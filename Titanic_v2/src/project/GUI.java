@@ -1,7 +1,7 @@
 package project;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import javax.swing.*;
 
 /**
@@ -12,17 +12,38 @@ import javax.swing.*;
  * - Atualizar a exibicao das vidas
  * - Mostrar mensagens ao jogador
  * - Gerir transicoes entre niveis
+ *
+ * Existem dois modos de funcionamento:
+ * - por eventos (por omissao): cada tecla e enviada logo para a simulacao e
+ *   so as celulas alteradas sao redesenhadas (MapView)
+ * - ciclo de jogo: as teclas vao para uma fila e um GameLoop envia-as com
+ *   passo fixo e desenha ativamente com BufferStrategy
+ * Em ambos os modos a logica do jogo corre na thread da Simulation e a
+ * interface apenas desenha os snapshots que ela publica.
+ *
+ * A GUI e um GameListener do motor: e ela que guarda a pontuacao e mostra
+ * os dialogos de fim de jogo e a tabela de pontuacoes.
+ *
+ * Os acontecimentos do motor sao tambem publicados num EventBus (getEvents).
+ * Quem quiser observar o jogo subscreve-se no anel, sem mexer no motor nem
+ * atrasar a simulacao (por exemplo o ReplayRecorder).
  */
-public class GUI extends JFrame implements KeyListener {
+public class GUI extends JFrame implements KeyListener, GameListener {
+
+    // Numero de eventos no anel (potencia de 2)
+    private static final int EVENT_RING_SIZE = 1024;
 
-    // Mapa atual
-    private Map map;
-    
     // Motor do jogo para controlar a logica
     private GameEngine engine;
     
-    // Painel onde o mapa e desenhado
-    private JPanel panel;
+    // Thread que aplica as jogadas e publica o estado do jogo
+    private Simulation simulation;
+
+    // Componente onde o mapa e desenhado (modo por eventos)
+    private MapView mapView;
+
+    // Ciclo de jogo com desenho ativo (modo ciclo de jogo), null no modo por eventos
+    private GameLoop gameLoop;
     
     // Etiqueta que mostra as vidas do jogador
     private JLabel livesLabel;
@@ -30,31 +51,51 @@ public class GUI extends JFrame implements KeyListener {
     // Nome do jogador (para exibir no titulo)
     private String playerName;
 
-    // Icones dos elementos do jogo
-    private ImageIcon boatImg, islandImg, rockImg, mermaidImg, pirateImg, vortexImg, explosiveImg;
+    // Anel onde o motor publica os acontecimentos do jogo
+    private final EventBus events = new EventBus(EVENT_RING_SIZE);
+
+    // Gravador do jogo (null se nao foi pedida uma pasta de replays)
+    private ReplayRecorder recorder;
+
+    // Indica se quem joga e o Autopilot (sem guardar pontuacao nem mostrar dialogos)
+    private volatile boolean autopilot;
+
+    /**
+    * Construtor da GUI no modo por eventos
+    * @param engine Motor do jogo (o mapa exibido e o mapa atual do motor)
+    * @param playerName Nome do jogador
+     */
+    public GUI(GameEngine engine, String playerName) {
+        this(engine, playerName, false);
+    }
 
     /**
     * Construtor da GUI
-    * @param map Mapa a ser exibido
-    * @param engine Motor do jogo
+    * @param engine Motor do jogo (o mapa exibido e o mapa atual do motor)
     * @param playerName Nome do jogador
+    * @param useGameLoop true para o modo ciclo de jogo, false para o modo por eventos
      */
-    public GUI(Map map, GameEngine engine, String playerName) {
-        this.map = map;
+    public GUI(GameEngine engine, String playerName, boolean useGameLoop) {
         this.engine = engine;
         this.playerName = playerName;
-        // Associa esta GUI ao motor do jogo
-        engine.setCurrentGUI(this);
+        // Recebe os acontecimentos do motor do jogo
+        engine.addListener(this);
+        events.connect(engine);
 
-        // Carrega as imagens dos icones
-        loadIcons();
+        // Grava o jogo se tiver sido indicada uma pasta de replays (-Dtitanic.replays=pasta)
+        String replayDir = System.getProperty("titanic.replays");
+        if (replayDir != null) {
+            String fileName = playerName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + engine.getSeed() + ".rpl";
+            recorder = new ReplayRecorder(engine, events, Paths.get(replayDir, fileName));
+        }
 
-        // Cria o painel principal com layout de grelha
-        panel = new JPanel();
-        panel.setLayout(new GridLayout(
-            map.getGrid().size(),            // Numero de linhas
-            map.getGrid().get(0).length()    // Numero de colunas
-        ));
+        // Cria a simulacao e o componente que desenha o mapa
+        simulation = new Simulation(engine, this::onSnapshot);
+        if (useGameLoop) {
+            gameLoop = new GameLoop(simulation);
+        } else {
+            mapView = new MapView(simulation.getLatest());
+        }
 
         // Cria painel superior para mostrar as vidas
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -62,11 +103,8 @@ public class GUI extends JFrame implements KeyListener {
         topPanel.add(livesLabel);
         add(topPanel, BorderLayout.NORTH);
 
-        // Desenha o mapa pela primeira vez
-        drawMap();
-
         // Atualiza o titulo da janela com o nivel e nome
-        updateTitle();
+        updateTitle(engine.getCurrentLevel());
         
         // Define o tamanho da janela
         setSize(600, 600);
@@ -77,115 +115,95 @@ public class GUI extends JFrame implements KeyListener {
         // Define que a aplicacao fecha ao fechar a janela
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
-        // Adiciona o painel à janela
-        add(panel);
+        // Adiciona o mapa à janela
+        add(gameLoop != null ? gameLoop.getCanvas() : mapView);
         
         // Adiciona listener de teclado para capturar as setas
         addKeyListener(this);
         
         // Torna a janela visivel
         setVisible(true);
+
+        // Comeca a simular (e, no modo ciclo de jogo, a desenhar)
+        simulation.start();
+        if (gameLoop != null) {
+            gameLoop.start();
+        }
     }
 
     /**
-    * Carrega as imagens dos icones dos elementos do jogo
+    * Fecha a janela e para a simulacao e o ciclo de jogo (se existir)
+    * O motor e fechado pela simulacao quando parar (liberta os mapas e os niveis pre-carregados)
+    * e so entao o gravador para, depois de consumir os ultimos eventos
      */
-    private void loadIcons() {
-        boatImg = new ImageIcon("bin/resources/icons/boat.png");
-        islandImg = new ImageIcon("bin/resources/icons/island.png");
-        rockImg = new ImageIcon("bin/resources/icons/iceberg.png");
-        mermaidImg = new ImageIcon("bin/resources/icons/mermaid.png");
-        pirateImg = new ImageIcon("bin/resources/icons/pirate.png");
-        vortexImg = new ImageIcon("bin/resources/icons/vortex.png");
-        explosiveImg = new ImageIcon("bin/resources/icons/explosive.png");
+    @Override
+    public void dispose() {
+        engine.removeListener(this);
+        simulation.stop(() -> {
+            engine.close();
+            if (recorder != null) {
+                recorder.close();
+            }
+        });
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        super.dispose();
     }
 
     /**
-    * Atualiza o titulo da janela com o nivel atual e nome do jogador
+    * Obtem a simulacao que corre o jogo desta janela
+    * @return Simulacao (para enviar jogadas e ler o ultimo snapshot)
      */
-    private void updateTitle() {
-        setTitle("Titanic - Level " + (engine.getCurrentLevel() + 1) + " - " + playerName);
+    public Simulation getSimulation() {
+        return simulation;
     }
 
     /**
-    * Desenha/redesenha o mapa completo na interface
-    * Percorre todas as celulas e coloca o icone apropriado
+    * Obtem o anel onde o motor publica os acontecimentos do jogo
+    * Subscrever antes de o jogo acabar; o consumidor tem de continuar a consumir
+    * @return Anel de eventos desta janela
      */
-    private void drawMap() {
-        // Remove todos os componentes antigos
-        panel.removeAll();
-
-        // Obtem a grelha e o barco
-        ArrayList<String> grid = map.getGrid();
-        Boat boat = map.getBoat();
-
-        // Percorre todas as linhas e colunas
-        for (int r = 0; r < grid.size(); r++) {
-            for (int c = 0; c < grid.get(r).length(); c++) {
-
-                // Cria uma celula (painel) com borda
-                JPanel cell = new JPanel(new BorderLayout());
-                cell.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-
-                // Se for a posicao do barco, mostra o icone do barco
-                if (boat.getRow() == r && boat.getCol() == c) {
-                    cell.add(new JLabel(boatImg), BorderLayout.CENTER);
-                    cell.setBackground(new Color(0, 70, 204)); // Azul escuro
-                } else {
-                    // Caso contrario, verifica o simbolo da celula
-                    char elem = grid.get(r).charAt(c);
+    public EventBus getEvents() {
+        return events;
+    }
 
-                    switch (elem) {
-                        case 'R': // Rocha
-                            cell.add(new JLabel(rockImg));
-                            cell.setBackground(new Color(0, 102, 204));
-                            break;
-                        case 'I': // Ilha
-                            cell.add(new JLabel(islandImg));
-                            cell.setBackground(new Color(0, 102, 204));
-                            break;
-                        case 'P': // Pirata
-                            cell.add(new JLabel(pirateImg)); 
-                            cell.setBackground(new Color(0, 102, 204));
-                            break;
-                        case 'M': // Sereia
-                             cell.add(new JLabel(mermaidImg)); 
-                             cell.setBackground(new Color(0, 102, 204));
-                             break;
-                        case 'V': // Vortice
-                            cell.add(new JLabel(vortexImg));
-                            cell.setBackground(new Color(0, 102, 204));
-                            break;
-                        case 'E': // Explosivo
-                            cell.add(new JLabel(explosiveImg));
-                            cell.setBackground(new Color(0, 102, 204));
-                            break;
-                        case '.': // Agua
-                            cell.setBackground(new Color(0, 102, 204)); 
-                            break;
-                        case 'X': // Fora do mapa
-                            cell.setBackground(Color.GRAY); 
-                            break;
-                        default:  // Qualquer outro simbolo
-                            cell.setBackground(new Color(0, 102, 204));
-                    }
-                }
+    /**
+    * Obtem os tempos de desenho do componente do mapa
+    * @return Estatisticas dos frames (do GameLoop ou da MapView)
+     */
+    public FrameStats getFrameStats() {
+        return gameLoop != null ? gameLoop.getFrameStats() : mapView.getFrameStats();
+    }
 
-                // Adiciona a celula ao painel
-                panel.add(cell);
-            }
-        }
+    /**
+    * Indica que o jogo e jogado pelo Autopilot
+    * No fim do jogo a janela apenas fecha: a pontuacao nao e guardada e nao
+    * sao mostrados dialogos que esperariam por um clique
+    * @param autopilot true se quem joga e o Autopilot
+     */
+    public void setAutopilot(boolean autopilot) {
+        this.autopilot = autopilot;
+    }
 
-        // Atualiza a exibicao
-        panel.revalidate();
-        panel.repaint();
+    /**
+    * Atualiza o titulo da janela com o nivel atual e nome do jogador
+    * @param level Indice do nivel atual
+     */
+    private void updateTitle(int level) {
+        setTitle("Titanic - Level " + (level + 1) + " - " + playerName);
     }
 
     /**
     * Atualiza a exibicao das vidas na interface
+    * Pode ser chamado de qualquer thread (a alteracao e feita na thread do Swing)
     * @param lives Numero de vidas atuais
      */
     public void updateLives(int lives) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> updateLives(lives));
+            return;
+        }
         if (livesLabel != null) {
             livesLabel.setText("Lives: " + lives);
         }
@@ -200,67 +218,108 @@ public class GUI extends JFrame implements KeyListener {
     }
 
     /**
-     * Método privado para perder uma vida
-     * Chamado a cada movimento do barco
+     * Método chamado quando uma tecla é pressionada
+     * Converte as setas do teclado num comando e envia-o para a simulacao
+     * (diretamente no modo por eventos, ou pelo GameLoop no modo ciclo de jogo)
      */
-    private void loseLife() {
-        engine.loseLife();
-        updateLives(engine.getLives());
+    @Override
+    public void keyPressed(KeyEvent e) {
+        Direction direction = directionFor(e.getKeyCode());
+        if (direction == null) {
+            return; // Nao e uma seta
+        }
+        if (gameLoop != null) {
+            gameLoop.keyPressed(direction);
+        } else {
+            simulation.submit(direction);
+        }
     }
 
     /**
-     * Método chamado quando uma tecla é pressionada
-     * Captura as setas do teclado e move o barco
+     * Obtem a direcao correspondente a uma seta do teclado
+     * @param keyCode Codigo da tecla
+     * @return Direcao, ou null se a tecla nao for uma seta
      */
-    @Override
-    public void keyPressed(KeyEvent e) {
-        // Obtém a posição atual do barco
-        Boat boat = map.getBoat();
-        int row = boat.getRow();
-        int col = boat.getCol();
-        
-        // Verifica qual tecla foi pressionada
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_LEFT: // Seta esquerda
-                if (map.canMoveTo(row, col - 1)) {
-                    map.moveBoat(row, col - 1);
-                    loseLife(); // Perde 1 vida por movimento
-                }
-                break;
-            case KeyEvent.VK_RIGHT: // Seta direita
-                if (map.canMoveTo(row, col + 1)) {
-                    map.moveBoat(row, col + 1);
-                    loseLife();
-                }
-                break;
-            case KeyEvent.VK_UP: // Seta para cima
-                if (map.canMoveTo(row - 1, col)) {
-                    map.moveBoat(row - 1, col);
-                    loseLife();
-                }
-                break;
-            case KeyEvent.VK_DOWN: // Seta para baixo
-                if (map.canMoveTo(row + 1, col)) {
-                    map.moveBoat(row + 1, col);
-                    loseLife();
-                }
-                break;
+    private static Direction directionFor(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_LEFT: return Direction.LEFT;   // Seta esquerda
+            case KeyEvent.VK_RIGHT: return Direction.RIGHT; // Seta direita
+            case KeyEvent.VK_UP: return Direction.UP;       // Seta para cima
+            case KeyEvent.VK_DOWN: return Direction.DOWN;   // Seta para baixo
+            default: return null;
         }
-        
-        // Redesenha o mapa após o movimento
-        drawMap();
-        
-        // Verifica se tocou na ilha
-        if (map.touchedIsland()) {
-            // Carrega o próximo nível
-            engine.loadNextLevel();
-            map = engine.getCurrentMap();
-            // Se houver próximo nível, atualiza a interface
-            if (map != null) {
-                updateTitle();
-                drawMap();
+    }
+
+    /**
+     * Recebe um snapshot publicado pela simulacao (chamado na thread de simulacao)
+     * e atualiza a interface na thread do Swing
+     * @param snapshot Estado mais recente do jogo
+     */
+    private void onSnapshot(GameSnapshot snapshot) {
+        SwingUtilities.invokeLater(() -> {
+            updateLives(snapshot.getLives());
+            updateTitle(snapshot.getLevel());
+            if (mapView != null) {
+                mapView.showSnapshot(snapshot);
             }
+        });
+    }
+
+    /**
+     * Ultimo nivel completado: guarda a pontuacao (na thread de simulacao)
+     * e mostra a mensagem de fim de jogo e a tabela de pontuacoes
+     * @param lives Vidas com que o jogador terminou
+     */
+    @Override
+    public void gameCompleted(int lives) {
+        if (autopilot) {
+            SwingUtilities.invokeLater(this::dispose);
+            return;
         }
+        // Guarda a pontuacao no ficheiro
+        engine.saveScore();
+        // A janela e os dialogos sao tratados na thread do Swing, sem bloquear o jogo
+        SwingUtilities.invokeLater(() -> {
+            alert("End of Game!");
+            // Fecha a janela do jogo
+            dispose();
+            // Abre a tabela de pontuacoes
+            new Scoreboard(engine);
+        });
+    }
+
+    /**
+     * Game Over: guarda a pontuacao (na thread de simulacao) e mostra o
+     * dialogo de Game Over e a tabela de pontuacoes
+     * @param lives Vidas com que o jogador terminou
+     */
+    @Override
+    public void gameOver(int lives) {
+        if (autopilot) {
+            SwingUtilities.invokeLater(this::dispose);
+            return;
+        }
+        // Guarda a pontuacao no ficheiro primeiro
+        engine.saveScore();
+
+        // O dialogo e mostrado na thread do Swing, sem bloquear o jogo
+        SwingUtilities.invokeLater(() -> {
+            // Cria um dialogo personalizado com botao "View Scores"
+            // Passa a janela do jogo em vez de null para aparecer no meio dela
+            Object[] options = {"View Scores"};
+            JOptionPane.showOptionDialog(this,
+                "Game Over!",
+                "End of Game",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.ERROR_MESSAGE,
+                null,
+                options,
+                options[0]);
+            dispose();
+
+            // Abre a tabela de pontuacoes
+            new Scoreboard(engine);
+        });
     }
 
     // Metodos da interface KeyListener
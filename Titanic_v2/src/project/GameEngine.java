@@ -1,21 +1,50 @@
 package project;
-import javax.swing.JOptionPane;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 
 /**
  * Classe GameEngine - Motor do jogo que controla toda a logica do Titanic
  * Responsavel por:
- * - Carregar e gerir os niveis do jogo
+ * - Carregar e gerir os niveis do jogo (o nivel seguinte e pre-carregado em segundo plano)
  * - Controlar as vidas do jogador
  * - Gerir transicoes entre niveis
  * - Guardar pontuacoes no ficheiro ranking.txt
  * - Controlar condicoes de vitoria e derrota
+ *
+ * O motor nao depende do Swing: avanca uma jogada de cada vez com step(),
+ * expoe o estado com getState() e avisa os GameListener registados (por
+ * exemplo a GUI) quando as vidas mudam, um nivel e completado ou o jogo termina.
+ * Assim pode correr sem ecra, num servidor ou num teste.
  */
 public class GameEngine {
 
+    // Vidas no inicio do jogo
+    public static final int STARTING_LIVES = 60;
+
+    // Vidas perdidas em cada movimento
+    public static final int MOVE_COST = 1;
+
+    // Vidas perdidas ao tocar num explosivo
+    public static final int EXPLOSIVE_COST = 5;
+
+    // Vidas ganhas ao apanhar uma sereia
+    public static final int MERMAID_BONUS = 10;
+
+    // Numero maximo de niveis pre-carregados guardados em cache
+    private static final int LEVEL_CACHE_SIZE = 2;
+
+    // Thread de fundo partilhada que pre-carrega os niveis seguintes
+    private static final ExecutorService PREFETCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "level-prefetch");
+        t.setDaemon(true); // Nao impede a aplicacao de terminar
+        return t;
+    });
+
     // Lista com os caminhos dos ficheiros de niveis
     private ArrayList<String> levelFiles;
     
@@ -25,26 +54,117 @@ public class GameEngine {
     // Mapa atual sendo jogado
     private Map currentMap;
     
-    // Referencia a interface grafica atual
-    private GUI currentGUI;
+    // Quem recebe os acontecimentos do jogo (copiado ao adicionar, para avisar sem alocar)
+    private GameListener[] listeners = new GameListener[0];
     
     // Vidas do jogador
-    private int lives = 60;
+    private int lives = STARTING_LIVES;
     
     // Nome do jogador
     private String playerName;
 
-    // Flag para evitar multiplos Game Over (duplicados)
-    private boolean gameOverTriggered = false;
+    // Estado do jogo (tambem evita multiplos Game Over duplicados)
+    private GameState state = GameState.PLAYING;
+
+    // Semente do gerador de numeros aleatorios (guardada para repetir o jogo)
+    private final long seed;
+
+    // Gerador de numeros aleatorios do jogo (posicao dos explosivos)
+    // Com a mesma semente e as mesmas jogadas, o jogo repete-se exatamente
+    private final SplittableRandom random;
+
+    // Fonte dos niveis (null = ler os ficheiros, pre-carregando o nivel seguinte)
+    private final Function<String, LevelData> levelSource;
+
+    // Niveis a ser (ou ja) carregados em segundo plano, por indice (cache limitada)
+    private final LinkedHashMap<Integer, Future<Map>> levelCache =
+        new LinkedHashMap<Integer, Future<Map>>() {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Integer, Future<Map>> eldest) {
+                if (size() > LEVEL_CACHE_SIZE) {
+                    discard(eldest.getValue()); // Descarta (e fecha) o pre-carregamento mais antigo
+                    return true;
+                }
+                return false;
+            }
+        };
+
+    // Indica se o motor ja foi fechado (os mapas ja foram libertados)
+    private boolean closed;
 
     /**
-    * Construtor do GameEngine
+    * Pre-carregamento de um nivel
+    * Se for cancelado enquanto o mapa esta a ser criado, o mapa criado e fechado
+    * logo (ninguem o vai usar nem fechar depois)
+     */
+    private static class PrefetchTask extends FutureTask<Map> {
+
+        /**
+        * Construtor do PrefetchTask
+        * @param file Ficheiro do nivel
+        * @param engine Motor que vai jogar o nivel
+         */
+        PrefetchTask(String file, GameEngine engine) {
+            super(() -> new Map(file, engine));
+        }
+
+        @Override
+        protected void set(Map map) {
+            super.set(map);
+            // Se foi cancelado antes de terminar, o resultado nao fica guardado
+            if (isCancelled()) {
+                map.close();
+            }
+        }
+    }
+
+    /**
+    * Obtem os caminhos dos ficheiros dos niveis do jogo
+    * @return Nova lista com os 5 niveis, pela ordem em que sao jogados
+     */
+    public static ArrayList<String> defaultLevelFiles() {
+        ArrayList<String> levelFiles = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            levelFiles.add("src/resources/levels/level" + i + ".txt");
+        }
+        return levelFiles;
+    }
+
+    /**
+    * Construtor do GameEngine com uma semente aleatoria
     * @param levelFiles Lista com os caminhos dos ficheiros de niveis
      * @param playerName Nome do jogador
      */
     public GameEngine(ArrayList<String> levelFiles, String playerName) {
+        this(levelFiles, playerName, System.nanoTime() ^ System.identityHashCode(levelFiles));
+    }
+
+    /**
+    * Construtor do GameEngine
+    * @param levelFiles Lista com os caminhos dos ficheiros de niveis
+    * @param playerName Nome do jogador
+    * @param seed Semente do gerador de numeros aleatorios
+     */
+    public GameEngine(ArrayList<String> levelFiles, String playerName, long seed) {
+        this(levelFiles, playerName, seed, null);
+    }
+
+    /**
+    * Construtor do GameEngine com uma fonte de niveis propria
+    * Os niveis sao pedidos a fonte na thread do motor, sem pre-carregamento;
+    * serve para simulacoes em lote que partilham niveis ja carregados
+    * @param levelFiles Lista com os caminhos dos ficheiros de niveis
+    * @param playerName Nome do jogador
+    * @param seed Semente do gerador de numeros aleatorios
+    * @param levelSource Fonte dos niveis por caminho (null = ler os ficheiros)
+     */
+    public GameEngine(ArrayList<String> levelFiles, String playerName, long seed,
+                      Function<String, LevelData> levelSource) {
         this.levelFiles = levelFiles;
         this.playerName = playerName;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.levelSource = levelSource;
         // Carrega o primeiro nivel (indice 0)
         if (levelFiles != null && !levelFiles.isEmpty()) {
             loadLevel(0);
@@ -59,38 +179,190 @@ public class GameEngine {
         return playerName;
     }
 
+    /**
+    * Obtem a lista de ficheiros de niveis
+    * @return Caminhos dos ficheiros de niveis
+     */
+    public List<String> getLevelFiles() {
+        return Collections.unmodifiableList(levelFiles);
+    }
+
+    /**
+    * Obtem a semente do gerador de numeros aleatorios
+    * @return Semente usada neste jogo
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+    * Obtem o gerador de numeros aleatorios do jogo
+    * So deve ser usado na thread que avanca o motor
+    * @return Gerador com a semente do jogo
+     */
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
     /**
     * Carrega um nivel especifico do jogo
+    * Usa o nivel pre-carregado em segundo plano se existir; so carrega
+    * (ou espera pelo pre-carregamento) se ainda nao estiver pronto.
+    * Depois comeca logo a pre-carregar o nivel seguinte.
     * @param levelIndex Indice do nivel a carregar (0 = primeiro nivel)
      */
     public void loadLevel(int levelIndex) {
         // Verifica se o indice e valido
         if (levelIndex < levelFiles.size()) {
+            // Liberta o mapa do nivel anterior
+            if (currentMap != null) {
+                currentMap.close();
+            }
             currentLevel = levelIndex;
-            // Cria um novo mapa a partir do ficheiro do nivel
-            currentMap = new Map(levelFiles.get(levelIndex), this);
+            if (levelSource != null) {
+                // A fonte de niveis ja tem o nivel pronto: nao ha nada a pre-carregar
+                currentMap = new Map(levelSource.apply(levelFiles.get(levelIndex)), this);
+                return;
+            }
+            currentMap = takePrefetched(levelIndex);
+            if (currentMap == null) {
+                // Cria um novo mapa a partir do ficheiro do nivel
+                currentMap = new Map(levelFiles.get(levelIndex), this);
+            }
+            // Pre-carrega o nivel seguinte enquanto este e jogado
+            prefetchLevel(levelIndex + 1);
+        }
+    }
+
+    /**
+    * Comeca a carregar e indexar um nivel numa thread de fundo
+    * @param levelIndex Indice do nivel a pre-carregar
+     */
+    private void prefetchLevel(int levelIndex) {
+        if (levelIndex >= levelFiles.size() || levelCache.containsKey(levelIndex)) {
+            return;
         }
+        PrefetchTask task = new PrefetchTask(levelFiles.get(levelIndex), this);
+        levelCache.put(levelIndex, task);
+        PREFETCH.execute(task);
+    }
+
+    /**
+    * Descarta um nivel pre-carregado que nao vai ser jogado
+    * Se ainda nao terminou e cancelado (o PrefetchTask fecha o mapa se ja estava
+    * a ser criado); se ja terminou, o mapa e fechado aqui
+    * @param pending Pre-carregamento a descartar
+     */
+    private static void discard(Future<Map> pending) {
+        if (pending.cancel(false)) {
+            return;
+        }
+        try {
+            pending.get().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // O pre-carregamento falhou: nao ha mapa para fechar
+        }
+    }
+
+    /**
+    * Liberta os mapas do motor: o mapa atual e os niveis pre-carregados
+    * (nos mundos paginados fecha os ficheiros abertos e apaga o ficheiro temporario)
+    * Deve ser chamado quando o jogo e abandonado, na thread que avanca o motor
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<Map> pending : levelCache.values()) {
+            discard(pending);
+        }
+        levelCache.clear();
+        if (currentMap != null) {
+            currentMap.close();
+        }
+    }
+
+    /**
+    * Retira da cache um nivel pre-carregado
+    * Se o pre-carregamento ainda estiver a decorrer, espera que termine
+    * @param levelIndex Indice do nivel
+    * @return Mapa pre-carregado, ou null se nao existir ou tiver falhado
+     */
+    private Map takePrefetched(int levelIndex) {
+        Future<Map> pending = levelCache.remove(levelIndex);
+        if (pending == null) {
+            return null;
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Se o pre-carregamento falhou, o nivel e carregado normalmente
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+    * Avanca uma jogada: move o barco na direcao indicada (perdendo 1 vida)
+    * e, se tocou na ilha, passa ao nivel seguinte
+    * @param direction Direcao da jogada
+    * @return true se o barco se moveu, false se o movimento foi bloqueado ou o jogo ja terminou
+     */
+    public boolean step(Direction direction) {
+        if (state.isFinished()) {
+            return false;
+        }
+        for (GameListener listener : listeners) {
+            listener.beforeStep(direction);
+        }
+        Boat boat = currentMap.getBoat();
+        int row = boat.getRow() + direction.getDRow();
+        int col = boat.getCol() + direction.getDCol();
+        boolean moved = false;
+        if (currentMap.canMoveTo(row, col)) {
+            currentMap.moveBoat(row, col);
+            loseLife(MOVE_COST); // Perde 1 vida por movimento
+            moved = true;
+        }
+
+        // Verifica se tocou na ilha e carrega o proximo nivel
+        if (!state.isFinished() && currentMap.touchedIsland()) {
+            nextLevel();
+        }
+        return moved;
+    }
+
+    /**
+    * Obtem o estado do jogo
+    * @return PLAYING, COMPLETED ou GAME_OVER
+     */
+    public GameState getState() {
+        return state;
     }
 
     /**
     * Avanca para o proximo nivel ou termina o jogo se for o ultimo
      */
     public void nextLevel() {
+        for (GameListener listener : listeners) {
+            listener.levelCompleted(currentLevel);
+        }
         // Verifica se ha mais niveis disponiveis
         if (currentLevel + 1 < levelFiles.size()) {
             // Carrega o proximo nivel
             loadLevel(currentLevel + 1);
         } else {
             // Ultimo nivel completado - fim do jogo
-            if (currentGUI != null) {
-                currentGUI.alert("End of Game!");
+            state = GameState.COMPLETED;
+            for (GameListener listener : listeners) {
+                listener.gameCompleted(lives);
             }
-            // Fecha a janela do jogo
-            currentGUI.dispose();
-            // Guarda a pontuacao no ficheiro
-            saveScore();
-            // Abre a tabela de pontuacoes
-            new Scoreboard(this);
         }
     }
 
@@ -118,17 +390,39 @@ public class GameEngine {
     }
 
     /**
-    * Define a interface grafica atual e atualiza as vidas
-    * @param gui Interface grafica a associar ao motor do jogo
+    * Regista um listener para os acontecimentos do jogo
+    * @param listener Listener a adicionar
      */
-    public void setCurrentGUI(GUI gui) {
-        this.currentGUI = gui;
-        if (this.currentGUI != null) {
-            // Atualiza a exibicao de vidas na interface
-            this.currentGUI.updateLives(lives);
+    public void addListener(GameListener listener) {
+        GameListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+    * Remove um listener registado
+    * @param listener Listener a remover
+     */
+    public void removeListener(GameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GameListener[] shrunk = new GameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
         }
     }
 
+    /**
+    * Verifica se o jogo terminou
+    * @return true se houve game over ou o ultimo nivel foi completado
+     */
+    public boolean isFinished() {
+        return state.isFinished();
+    }
+
     /**
     * Obtem o numero de vidas atuais do jogador
     * @return Numero de vidas restantes
@@ -149,16 +443,14 @@ public class GameEngine {
     * @param amount Quantidade de vidas a perder
      */
     public void loseLife(int amount) {
-        if (gameOverTriggered) {
+        if (state == GameState.GAME_OVER) {
             return; // Ja terminou o jogo
         }
         // Subtrai as vidas
         lives -= amount;
         
-        // Atualiza a exibicao na interface grafica
-        if (currentGUI != null) {
-            currentGUI.updateLives(lives);
-        }
+        // Avisa os listeners (por exemplo para atualizar a interface grafica)
+        fireLivesChanged();
 
         // Verifica se o jogador ficou sem vidas
         if (lives <= 0) {
@@ -174,56 +466,67 @@ public class GameEngine {
         // Adiciona as vidas
         lives += amount;
         
-        // Atualiza a exibicao na interface grafica
-        if (currentGUI != null) {
-            currentGUI.updateLives(lives);
+        // Avisa os listeners (por exemplo para atualizar a interface grafica)
+        fireLivesChanged();
+    }
+
+    /**
+    * Quando o barco apanha uma sereia: ganha vidas
+     */
+    public void mermaidCollected() {
+        for (GameListener listener : listeners) {
+            listener.mermaidCollected();
         }
+        gainLife(MERMAID_BONUS);
+    }
+
+    /**
+    * Quando o barco toca num explosivo: perde vidas
+     */
+    public void explosiveHit() {
+        for (GameListener listener : listeners) {
+            listener.explosiveHit();
+        }
+        loseLife(EXPLOSIVE_COST);
     }
 
     /**
      * Quando o barco toca no pirata: Game Over
      */
     public void pirateHit() {
-        if (gameOverTriggered) {
+        if (state == GameState.GAME_OVER) {
             return;
         }
+        for (GameListener listener : listeners) {
+            listener.pirateHit();
+        }
         // Morreu para o pirata: a pontuacao deve ficar a 0
         lives = 0;
-        if (currentGUI != null) {
-            currentGUI.updateLives(lives);
-        }
+        fireLivesChanged();
         gameOver();
     }
 
+    /**
+    * Avisa os listeners de que o numero de vidas mudou
+     */
+    private void fireLivesChanged() {
+        for (GameListener listener : listeners) {
+            listener.livesChanged(lives);
+        }
+    }
+
     /**
     * Termina o jogo imediatamente (usado quando o barco toca no pirata)
-    * Mostra mensagem de Game Over
+    * Avisa os listeners do Game Over
      */
     public void gameOver() {
-        if (gameOverTriggered) {
-            return; // Evita popups duplicados
+        if (state == GameState.GAME_OVER) {
+            return; // Evita avisos duplicados
         }
-        gameOverTriggered = true;
-        // Guarda a pontuacao no ficheiro primeiro
-        saveScore();
-        
-        if (currentGUI != null) {           
-            // Cria um dialogo personalizado com botao "View Scores"
-            // Passa currentGUI em vez de null para aparecer no meio da janela do jogo
-            Object[] options = {"View Scores"};
-            JOptionPane.showOptionDialog(currentGUI,
-                "Game Over!",
-                "End of Game",
-                JOptionPane.DEFAULT_OPTION,
-                JOptionPane.ERROR_MESSAGE,
-                null,
-                options,
-                options[0]);
-            currentGUI.dispose();
+        state = GameState.GAME_OVER;
+        for (GameListener listener : listeners) {
+            listener.gameOver(lives);
         }
-        
-        // Abre a tabela de pontuacoes
-        new Scoreboard(this);
     }
 
     /**
@@ -231,15 +534,17 @@ public class GameEngine {
     * Formato: Nome;Vidas
      */
     public void saveScore() {
-        try (FileWriter fw = new FileWriter("ranking.txt", true);
-                PrintWriter pw = new PrintWriter(fw)) {
-
-            // Escreve uma linha no formato: Nome;Vidas
-            pw.println(this.playerName + ";" + this.lives);
+        appendScore(playerName, lives);
+    }
 
-        } catch (IOException e) {
-            // Mostra erro se nao conseguir guardar
-            System.err.println("Erro ao salvar ranking: " + e.getMessage());
-        }
+    /**
+    * Acrescenta uma pontuacao ao ficheiro ranking.txt
+    * A escrita e feita em segundo plano pelo ScoreWriter, agrupada com as
+    * pontuacoes de outras sessoes (GUI ou GameServer): quem chama nao espera pelo disco
+    * @param playerName Nome do jogador
+    * @param lives Vidas com que terminou
+     */
+    public static void appendScore(String playerName, int lives) {
+        ScoreWriter.shared().submit(playerName, lives);
     }
-}
\ No newline at end of file
+}
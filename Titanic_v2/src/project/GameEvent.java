@@ -0,0 +1,90 @@
+package project;
+
+/**
+ * Classe GameEvent - Uma posicao reutilizavel do anel do EventBus
+ * Os eventos sao criados uma unica vez, com o anel, e reescritos a cada
+ * publicacao; por isso todos os campos sao primitivos (ou o tipo) e quem
+ * consome um evento nao o deve guardar depois de onEvent terminar.
+ */
+public final class GameEvent {
+
+    // Tipo do acontecimento
+    private GameEventType type;
+
+    // Nivel onde aconteceu
+    private int level;
+
+    // Posicao do barco
+    private int row, col;
+
+    // Direcao da jogada (ordinal de Direction, ou -1 se nao se aplica)
+    private int direction;
+
+    // Variacao das vidas (0 se nao se aplica)
+    private int delta;
+
+    // Vidas depois do acontecimento
+    private int lives;
+
+    /**
+    * Reescreve o evento (usado apenas pelo EventBus ao publicar)
+    * @param type Tipo do acontecimento
+    * @param level Nivel atual
+    * @param row Linha do barco
+    * @param col Coluna do barco
+    * @param direction Ordinal da direcao, ou -1
+    * @param delta Variacao das vidas
+    * @param lives Vidas atuais
+     */
+    void set(GameEventType type, int level, int row, int col, int direction, int delta, int lives) {
+        this.type = type;
+        this.level = level;
+        this.row = row;
+        this.col = col;
+        this.direction = direction;
+        this.delta = delta;
+        this.lives = lives;
+    }
+
+    /**
+    * Obtem o tipo do acontecimento
+    * @return Tipo
+     */
+    public GameEventType getType() { return type; }
+
+    /**
+    * Obtem o nivel onde aconteceu
+    * @return Indice do nivel
+     */
+    public int getLevel() { return level; }
+
+    /**
+    * Obtem a linha do barco
+    * @return Linha
+     */
+    public int getRow() { return row; }
+
+    /**
+    * Obtem a coluna do barco
+    * @return Coluna
+     */
+    public int getCol() { return col; }
+
+    /**
+    * Obtem a direcao da jogada (eventos MOVE)
+    * @return Ordinal de Direction, ou -1
+     */
+    public int getDirection() { return direction; }
+
+    /**
+    * Obtem a variacao das vidas
+    * @return Vidas ganhas (positivo) ou perdidas (negativo)
+     */
+    public int getDelta() { return delta; }
+
+    /**
+    * Obtem as vidas depois do acontecimento
+    * @return Vidas
+     */
+    public int getLives() { return lives; }
+}
@@ -0,0 +1,23 @@
+package project;
+
+/**
+ * Enum GameEventType - Tipos de acontecimento publicados no EventBus
+ */
+public enum GameEventType {
+    // O jogador pediu uma jogada (posicao antes da jogada e direcao)
+    MOVE,
+    // As vidas mudaram (delta e vidas atuais)
+    LIVES_CHANGED,
+    // O barco apanhou uma sereia
+    MERMAID,
+    // O barco tocou num explosivo
+    EXPLOSIVE,
+    // O barco tocou no pirata
+    PIRATE,
+    // Um nivel foi completado
+    LEVEL_COMPLETED,
+    // O ultimo nivel foi completado
+    GAME_COMPLETED,
+    // O jogador perdeu
+    GAME_OVER
+}
@@ -0,0 +1,55 @@
+package project;
+
+/**
+ * Interface GameListener - Recebe os acontecimentos do motor do jogo
+ * O GameEngine nao conhece a interface grafica: avisa os seus listeners
+ * quando as vidas mudam, quando um nivel e completado e quando o jogo termina.
+ * Os metodos sao chamados na thread que avanca o motor (por omissao nao fazem nada).
+ */
+public interface GameListener {
+
+    /**
+    * Chamado no inicio de cada jogada, antes de ser aplicada
+    * @param direction Direcao da jogada
+     */
+    default void beforeStep(Direction direction) {}
+
+    /**
+    * Chamado quando o numero de vidas muda
+    * @param lives Vidas atuais
+     */
+    default void livesChanged(int lives) {}
+
+    /**
+    * Chamado quando o barco apanha uma sereia (antes de ganhar as vidas)
+     */
+    default void mermaidCollected() {}
+
+    /**
+    * Chamado quando o barco toca num explosivo (antes de perder as vidas)
+     */
+    default void explosiveHit() {}
+
+    /**
+    * Chamado quando o barco toca no pirata (antes do Game Over)
+     */
+    default void pirateHit() {}
+
+    /**
+    * Chamado quando um nivel e completado (antes de carregar o seguinte)
+    * @param level Indice do nivel completado
+     */
+    default void levelCompleted(int level) {}
+
+    /**
+    * Chamado quando o ultimo nivel e completado
+    * @param lives Vidas com que o jogador terminou
+     */
+    default void gameCompleted(int lives) {}
+
+    /**
+    * Chamado quando o jogador perde (sem vidas ou tocou no pirata)
+    * @param lives Vidas com que o jogador terminou
+     */
+    default void gameOver(int lives) {}
+}
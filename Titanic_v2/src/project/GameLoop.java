@@ -0,0 +1,206 @@
+package project;
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Classe GameLoop - Ciclo de jogo com desenho ativo (alternativa ao desenho por eventos)
+ * As teclas nao mexem logo no jogo: sao guardadas numa fila limitada.
+ * Uma thread propria avanca com um passo fixo (TICKS_PER_SECOND), enviando no
+ * maximo uma jogada por passo para a Simulation e lendo o ultimo snapshot,
+ * e desenha o mapa num Canvas com BufferStrategy (troca de paginas).
+ * Entre dois passos a posicao do barco e interpolada, o que da um movimento
+ * suave e um tempo por frame estavel.
+ */
+public class GameLoop implements Runnable {
+
+    // Passos de simulacao por segundo
+    private static final int TICKS_PER_SECOND = 20;
+
+    // Frames desenhados por segundo (no maximo)
+    private static final int MAX_FPS = 60;
+
+    // Numero maximo de teclas em espera (teclas a mais sao ignoradas)
+    private static final int MAX_QUEUED_MOVES = 4;
+
+    // Numero maximo de passos recuperados de uma vez depois de um atraso
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    // Duracao de um passo e de um frame em nanossegundos
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final long FRAME_NANOS = 1_000_000_000L / MAX_FPS;
+
+    // Superficie onde o jogo e desenhado
+    private final Canvas canvas;
+
+    // Desenha as celulas e segue o barco com a camara
+    private final MapRenderer renderer = new MapRenderer();
+
+    // Tempos de desenho (para o relatorio do Autopilot)
+    private final FrameStats frameStats = new FrameStats();
+
+    // Jogadas a enviar nos proximos passos
+    private final ArrayBlockingQueue<Direction> input = new ArrayBlockingQueue<>(MAX_QUEUED_MOVES);
+
+    // Simulacao que aplica as jogadas e publica o estado do jogo
+    private final Simulation simulation;
+
+    // Indica se o ciclo deve continuar
+    private volatile boolean running;
+
+    // Snapshot do passo anterior e do passo atual (para interpolar)
+    private GameSnapshot previous, current;
+
+    /**
+    * Construtor do GameLoop
+    * @param simulation Simulacao do jogo
+     */
+    public GameLoop(Simulation simulation) {
+        this.simulation = simulation;
+        canvas = new Canvas();
+        // As teclas continuam a ser recebidas pela janela
+        canvas.setFocusable(false);
+        canvas.setIgnoreRepaint(true);
+        previous = current = simulation.getLatest();
+    }
+
+    /**
+    * Obtem o componente onde o jogo e desenhado
+    * @return Canvas a adicionar a janela
+     */
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+    * Obtem os tempos de desenho registados
+    * @return Estatisticas dos frames
+     */
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    /**
+    * Guarda uma jogada para ser enviada no proximo passo
+    * @param direction Direcao da jogada
+     */
+    public void keyPressed(Direction direction) {
+        // Se a fila estiver cheia (tecla mantida premida), a jogada e ignorada
+        input.offer(direction);
+    }
+
+    /**
+    * Inicia a thread do ciclo de jogo
+     */
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+    * Pede a paragem do ciclo de jogo (nao espera que termine)
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+    * Ciclo principal: passos de simulacao fixos e desenho interpolado
+     */
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (running) {
+            long frameStart = System.nanoTime();
+            accumulator += frameStart - previous;
+            previous = frameStart;
+
+            // Evita acumular passos sem fim se a maquina ficar lenta
+            accumulator = Math.min(accumulator, TICK_NANOS * MAX_CATCH_UP_TICKS);
+            while (accumulator >= TICK_NANOS && running) {
+                tick();
+                accumulator -= TICK_NANOS;
+            }
+
+            render((double) accumulator / TICK_NANOS);
+
+            // Espera pelo proximo frame
+            long sleep = FRAME_NANOS - (System.nanoTime() - frameStart);
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+    * Um passo: envia no maximo uma jogada em espera e le o ultimo snapshot
+     */
+    private void tick() {
+        Direction direction = input.poll();
+        if (direction != null) {
+            simulation.submit(direction);
+        }
+        // Guarda o estado anterior e o novo para interpolar no desenho
+        previous = current;
+        current = simulation.getLatest();
+    }
+
+    /**
+    * Desenha um frame no buffer de tras e troca de pagina
+    * @param alpha Fracao do passo atual ja decorrida (0 a 1)
+     */
+    private void render(double alpha) {
+        if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) {
+            canvas.createBufferStrategy(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Posicao interpolada do barco (um teletransporte ou mudanca de nivel nao e interpolado)
+        double boatRow = current.getBoatRow();
+        double boatCol = current.getBoatCol();
+        int dRow = current.getBoatRow() - previous.getBoatRow();
+        int dCol = current.getBoatCol() - previous.getBoatCol();
+        if (previous.sameLevel(current) && Math.abs(dRow) + Math.abs(dCol) == 1) {
+            boatRow = previous.getBoatRow() + dRow * alpha;
+            boatCol = previous.getBoatCol() + dCol * alpha;
+        }
+
+        if (renderer.getGrid() != current.getGrid()) {
+            renderer.setGrid(current.getGrid());
+        }
+        Rectangle view = new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight());
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    g.setColor(canvas.getBackground());
+                    g.fillRect(0, 0, view.width, view.height);
+                    if (renderer.layout(view.width, view.height)) {
+                        // A camara segue a posicao interpolada, por isso desliza sem temporizador
+                        renderer.follow(boatRow, boatCol);
+                        renderer.getCamera().snap();
+                        renderer.paint(g, view, boatRow, boatCol);
+                    }
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        frameStats.record(System.nanoTime() - start);
+    }
+}
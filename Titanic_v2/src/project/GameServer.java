@@ -0,0 +1,287 @@
+package project;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe GameServer - Servidor TCP com muitos jogos ao mesmo tempo na mesma JVM
+ * Aceita ligacoes apenas em localhost; cada ligacao e uma GameSession com o seu
+ * GameEngine, atendida numa thread virtual (Java 21+) ou, em versoes anteriores,
+ * numa thread normal com pilha pequena. O protocolo esta descrito na GameSession.
+ *
+ * Os niveis sao lidos e indexados uma unica vez e nunca alterados: cada jogo joga
+ * sobre uma OverlayGrid que so guarda as celulas que mudaram e partilha os indices
+ * do nivel (LevelIndex: bits navegaveis, distancias a ilha, rotas), com copias
+ * copy-on-write dos elementos e da agua livre. Assim a memoria de cada sessao
+ * depende das celulas que o jogo alterou e nao do tamanho dos niveis.
+ *
+ * O ranking e partilhado por todas as sessoes: cada pontuacao e acrescentada ao
+ * ranking.txt pelo ScoreWriter (em grupos, numa thread de fundo) e o comando SCORE
+ * responde a partir do RankingService, que so le as linhas novas do ficheiro.
+ */
+public class GameServer {
+
+    // Porta por omissao
+    public static final int DEFAULT_PORT = 7777;
+
+    // Numero maximo de sessoes ao mesmo tempo por omissao
+    public static final int DEFAULT_MAX_SESSIONS = 20_000;
+
+    // Tempo maximo sem receber comandos antes de fechar a ligacao (milissegundos)
+    static final int IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    // Tamanho da pilha das threads normais (quando nao ha threads virtuais)
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+    // Numero de pontuacoes devolvidas pelo comando SCORE
+    private static final int TOP_SCORES = 10;
+
+    // Caminhos dos niveis
+    private final ArrayList<String> levelFiles;
+
+    // Niveis carregados no arranque (so lidos pelas sessoes)
+    private final HashMap<String, LevelData> templates = new HashMap<>();
+
+    // Indice do ranking partilhado
+    private final RankingService ranking = RankingService.shared();
+
+    // Numero maximo de sessoes ao mesmo tempo
+    private final int maxSessions;
+
+    // Semente de onde e derivada a semente de cada jogo
+    private final long seed;
+
+    // Sessoes ligadas neste momento
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    // Numero de ligacoes aceites (tambem numera as sessoes)
+    private final AtomicLong acceptedSessions = new AtomicLong();
+
+    // Threads das sessoes
+    private final ExecutorService sessions;
+
+    // Socket onde as ligacoes sao aceites
+    private ServerSocket serverSocket;
+
+    /**
+    * Construtor do GameServer
+    * Carrega todos os niveis uma vez e indexa as pontuacoes ja guardadas
+    * @param levelFiles Caminhos dos niveis
+    * @param maxSessions Numero maximo de sessoes ao mesmo tempo
+    * @param seed Semente base dos jogos
+    * @throws IOException Se algum nivel nao puder ser lido
+     */
+    public GameServer(ArrayList<String> levelFiles, int maxSessions, long seed) throws IOException {
+        this.levelFiles = levelFiles;
+        this.maxSessions = maxSessions;
+        this.seed = seed;
+        for (String file : levelFiles) {
+            if (!templates.containsKey(file)) {
+                // Os indices do nivel sao calculados ao carregar, e nao na primeira sessao
+                templates.put(file, LevelLoader.load(file));
+            }
+        }
+        ranking.refresh();
+        sessions = newSessionExecutor();
+    }
+
+    /**
+    * Cria o executor das sessoes: uma thread virtual por sessao se a JVM as tiver
+    * (procurado por reflexao para continuar a compilar em Java 17), senao uma
+    * thread normal por sessao com pilha pequena
+    * @return Executor que corre cada sessao numa thread propria
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicLong threads = new AtomicLong();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(null, r, "session-" + threads.incrementAndGet(), SESSION_STACK_SIZE);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+    * Aceita ligacoes ate o servidor ser parado (bloqueia a thread que o chama)
+    * @param port Porta TCP (0 = uma porta livre qualquer)
+    * @throws IOException Se a porta nao puder ser aberta
+     */
+    public void serve(int port) throws IOException {
+        bind(port);
+        acceptLoop();
+    }
+
+    /**
+    * Abre a porta do servidor em localhost
+    * @param port Porta TCP (0 = uma porta livre qualquer)
+    * @return Porta aberta
+    * @throws IOException Se a porta nao puder ser aberta
+     */
+    public int bind(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+    * Aceita ligacoes ate o socket do servidor ser fechado
+    * Acima do limite de sessoes, a ligacao e recusada com ERR busy
+    * @throws IOException Se a aceitacao falhar
+     */
+    public void acceptLoop() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                break; // Servidor parado
+            }
+            if (activeSessions.incrementAndGet() > maxSessions) {
+                activeSessions.decrementAndGet();
+                refuse(socket);
+                continue;
+            }
+            sessions.execute(new GameSession(this, socket, acceptedSessions.incrementAndGet()));
+        }
+    }
+
+    /**
+    * Recusa uma ligacao porque o servidor esta cheio
+    * @param socket Ligacao a recusar
+     */
+    private static void refuse(Socket socket) {
+        try (Socket s = socket) {
+            OutputStream out = s.getOutputStream();
+            out.write("ERR busy\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        } catch (IOException e) {
+            // O cliente ja saiu
+        }
+    }
+
+    /**
+    * Para o servidor: fecha a porta e termina as sessoes
+     */
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sessions.shutdownNow();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+    * Cria o motor de um jogo novo sobre os niveis partilhados
+    * @param playerName Nome do jogador
+    * @param gameNumber Numero do jogo (misturado com a semente do servidor)
+    * @return Motor pronto a jogar
+     */
+    GameEngine newEngine(String playerName, long gameNumber) {
+        return new GameEngine(levelFiles, playerName, seed ^ gameNumber * 0x9E3779B97F4A7C15L,
+            file -> templates.get(file).overlay());
+    }
+
+    /**
+    * Obtem o numero de niveis de cada jogo
+    * @return Numero de niveis
+     */
+    int getLevelCount() {
+        return levelFiles.size();
+    }
+
+    /**
+    * Obtem o numero de sessoes ligadas
+    * @return Sessoes ativas
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+    * Avisa que uma sessao terminou
+     */
+    void sessionEnded() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+    * Guarda a pontuacao de um jogo terminado (pode ser chamado por varias sessoes ao mesmo tempo)
+    * @param playerName Nome do jogador
+    * @param lives Vidas com que terminou
+     */
+    void recordScore(String playerName, int lives) {
+        GameEngine.appendScore(playerName, lives);
+    }
+
+    /**
+    * Obtem as melhores pontuacoes (uma por jogador), da maior para a menor
+    * @return Ate TOP_SCORES pontuacoes
+     */
+    Score[] topScores() {
+        // Espera que as pontuacoes ja submetidas cheguem ao ficheiro (sem fsync)
+        ScoreWriter.shared().awaitWritten();
+        ranking.refresh();
+        return ranking.top(TOP_SCORES);
+    }
+
+    /**
+    * Arranca o servidor
+    * Uso: java project.GameServer [-port P] [-max-sessions N] [-seed S] [nivel1.txt ...]
+    * Sem niveis, usa os niveis do jogo.
+    * @param args Argumentos da linha de comandos
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        long seed = System.nanoTime();
+        ArrayList<String> levelFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-port": port = Integer.parseInt(args[++i]); break;
+                    case "-max-sessions": maxSessions = Integer.parseInt(args[++i]); break;
+                    case "-seed": seed = Long.parseLong(args[++i]); break;
+                    default: levelFiles.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("Uso: java project.GameServer [-port P] [-max-sessions N] [-seed S] [nivel1.txt ...]");
+            System.exit(2);
+        }
+        if (levelFiles.isEmpty()) {
+            levelFiles = GameEngine.defaultLevelFiles();
+        }
+
+        try {
+            GameServer server = new GameServer(levelFiles, maxSessions, seed);
+            int bound = server.bind(port);
+            RankingCompactor.startShared();
+            System.out.println("GameServer em localhost:" + bound + " (ate " + maxSessions + " sessoes)");
+            server.acceptLoop();
+        } catch (IOException e) {
+            System.err.println("Erro no servidor: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package project;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Classe GameSession - Um jogador ligado ao GameServer
+ * Le comandos de texto, um por linha, e responde com uma linha por comando:
+ * - MOVE U|D|L|R  -> MOVED|BLOCKED estado nivel vidas linha coluna
+ * - STATE         -> STATE estado nivel vidas linha coluna
+ * - SCORE         -> SCORE n, seguido de n linhas Nome;Pontos (melhores do ranking)
+ * - NAME nome     -> OK (nome guardado com a pontuacao)
+ * - NEW           -> STATE ... de um jogo novo
+ * - QUIT          -> BYE
+ * Erros sao respondidos com ERR motivo, sem fechar a ligacao.
+ *
+ * Cada sessao corre numa thread propria (virtual quando existe) e e a unica que
+ * usa o seu GameEngine. A memoria por sessao e limitada: buffers pequenos e de
+ * tamanho fixo, linhas com tamanho maximo e niveis partilhados com o servidor
+ * (so as celulas alteradas sao guardadas, numa OverlayGrid, e os indices do
+ * nivel sao os do servidor, ver LevelIndex).
+ */
+class GameSession implements Runnable, GameListener {
+
+    // Tamanho maximo de uma linha de comando (linhas maiores sao recusadas)
+    private static final int MAX_LINE = 64;
+
+    // Tamanho dos buffers de leitura e escrita da ligacao
+    private static final int BUFFER_SIZE = 256;
+
+    // Tamanho maximo de um nome de jogador
+    private static final int MAX_NAME = 24;
+
+    // Servidor que criou a sessao (niveis, ranking)
+    private final GameServer server;
+
+    // Ligacao ao cliente
+    private final Socket socket;
+
+    // Numero da sessao (nome por omissao e semente)
+    private final long id;
+
+    // Linha de comando atual (reutilizada)
+    private final byte[] line = new byte[MAX_LINE];
+
+    // Motor do jogo atual
+    private GameEngine engine;
+
+    // Nome do jogador
+    private String playerName;
+
+    // Numero de jogos comecados nesta sessao
+    private int games;
+
+    /**
+    * Construtor da GameSession
+    * @param server Servidor que aceitou a ligacao
+    * @param socket Ligacao ao cliente
+    * @param id Numero da sessao
+     */
+    GameSession(GameServer server, Socket socket, long id) {
+        this.server = server;
+        this.socket = socket;
+        this.id = id;
+        this.playerName = "player-" + id;
+    }
+
+    /**
+    * Atende o cliente ate ele sair, a ligacao cair ou ficar parada demasiado tempo
+     */
+    @Override
+    public void run() {
+        try (Socket s = socket) {
+            s.setSoTimeout(GameServer.IDLE_TIMEOUT_MILLIS);
+            s.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(s.getInputStream(), BUFFER_SIZE);
+            OutputStream out = new BufferedOutputStream(s.getOutputStream(), BUFFER_SIZE);
+            newGame();
+            write(out, "TITANIC " + server.getLevelCount());
+            write(out, state("STATE"));
+            out.flush();
+            int length;
+            while ((length = readLine(in)) >= 0) {
+                if (!handle(length, out)) {
+                    break;
+                }
+                out.flush();
+            }
+            out.flush();
+        } catch (SocketTimeoutException e) {
+            // Cliente parado: a ligacao e fechada
+        } catch (IOException e) {
+            // Ligacao perdida: nao ha a quem responder
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+            server.sessionEnded();
+        }
+    }
+
+    /**
+    * Trata um comando
+    * @param length Tamanho da linha lida (MAX_LINE + 1 se foi truncada)
+    * @param out Onde escrever a resposta
+    * @return false se a sessao deve terminar
+    * @throws IOException Se a resposta nao puder ser escrita
+     */
+    private boolean handle(int length, OutputStream out) throws IOException {
+        if (length > MAX_LINE) {
+            write(out, "ERR line too long");
+            return true;
+        }
+        String command = new String(line, 0, length, StandardCharsets.US_ASCII).trim();
+        int space = command.indexOf(' ');
+        String verb = space < 0 ? command : command.substring(0, space);
+        String argument = space < 0 ? "" : command.substring(space + 1).trim();
+        switch (verb.toUpperCase()) {
+            case "MOVE":
+                Direction direction = directionFor(argument);
+                if (direction == null) {
+                    write(out, "ERR direction must be U, D, L or R");
+                } else if (engine.isFinished()) {
+                    write(out, "ERR game finished");
+                } else {
+                    write(out, state(engine.step(direction) ? "MOVED" : "BLOCKED"));
+                }
+                return true;
+            case "STATE":
+                write(out, state("STATE"));
+                return true;
+            case "SCORE":
+                Score[] top = server.topScores();
+                write(out, "SCORE " + top.length);
+                for (Score score : top) {
+                    write(out, score.name + ";" + score.points);
+                }
+                return true;
+            case "NAME":
+                if (argument.isEmpty() || argument.length() > MAX_NAME || argument.indexOf(';') >= 0) {
+                    write(out, "ERR invalid name");
+                } else {
+                    playerName = argument;
+                    write(out, "OK");
+                }
+                return true;
+            case "NEW":
+                newGame();
+                write(out, state("STATE"));
+                return true;
+            case "QUIT":
+                write(out, "BYE");
+                return false;
+            case "":
+                return true;
+            default:
+                write(out, "ERR unknown command");
+                return true;
+        }
+    }
+
+    /**
+    * Comeca um jogo novo com os niveis partilhados do servidor
+     */
+    private void newGame() {
+        if (engine != null) {
+            engine.removeListener(this);
+            engine.close();
+        }
+        engine = server.newEngine(playerName, id * 31 + games++);
+        engine.addListener(this);
+    }
+
+    /**
+    * Descreve o estado do jogo numa linha
+    * @param prefix Primeira palavra da resposta
+    * @return prefixo estado nivel vidas linha coluna
+     */
+    private String state(String prefix) {
+        Boat boat = engine.getCurrentMap().getBoat();
+        return prefix + " " + engine.getState() + " " + (engine.getCurrentLevel() + 1) + " "
+            + engine.getLives() + " " + (boat == null ? -1 : boat.getRow()) + " "
+            + (boat == null ? -1 : boat.getCol());
+    }
+
+    /**
+    * Le uma linha para o buffer da sessao (sem criar objetos)
+    * Se a linha for maior do que MAX_LINE, o resto e descartado
+    * @param in Entrada da ligacao
+    * @return Tamanho da linha, MAX_LINE + 1 se foi truncada, ou -1 no fim da ligacao
+    * @throws IOException Se a leitura falhar
+     */
+    private int readLine(InputStream in) throws IOException {
+        int length = 0;
+        boolean truncated = false;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                return truncated ? MAX_LINE + 1 : length;
+            }
+            if (b == '\r') {
+                continue;
+            }
+            if (length < MAX_LINE) {
+                line[length++] = (byte) b;
+            } else {
+                truncated = true;
+            }
+        }
+        // Fim da ligacao: uma ultima linha sem '\n' ainda e tratada
+        return length > 0 && !truncated ? length : -1;
+    }
+
+    /**
+    * Escreve uma linha de resposta
+    * @param out Saida da ligacao
+    * @param text Linha (sem '\n')
+    * @throws IOException Se a escrita falhar
+     */
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.write('\n');
+    }
+
+    /**
+    * Obtem a direcao de uma letra do protocolo
+    * @param letter U, D, L ou R
+    * @return Direcao, ou null se a letra nao for valida
+     */
+    private static Direction directionFor(String letter) {
+        switch (letter.toUpperCase()) {
+            case "U": return Direction.UP;
+            case "D": return Direction.DOWN;
+            case "L": return Direction.LEFT;
+            case "R": return Direction.RIGHT;
+            default: return null;
+        }
+    }
+
+    /**
+    * Ultimo nivel completado: guarda a pontuacao no ranking partilhado
+    * @param lives Vidas com que o jogador terminou
+     */
+    @Override
+    public void gameCompleted(int lives) {
+        server.recordScore(playerName, lives);
+    }
+
+    /**
+    * Game Over: guarda a pontuacao no ranking partilhado
+    * @param lives Vidas com que o jogador terminou
+     */
+    @Override
+    public void gameOver(int lives) {
+        server.recordScore(playerName, lives);
+    }
+}
@@ -0,0 +1,121 @@
+package project;
+
+/**
+ * Classe GameSnapshot - Estado do jogo publicado pela simulacao
+ * A thread de simulacao cria um snapshot depois de aplicar as jogadas e a
+ * interface grafica le-o para desenhar, sem tocar no estado interno do motor.
+ * Inclui as celulas que mudaram desde o snapshot anterior.
+ *
+ * O snapshot e imutavel: as celulas sao uma SnapshotGrid (copy-on-write) e
+ * nao o mapa vivo, por isso podem ser lidas noutra thread sem locks.
+ */
+public final class GameSnapshot {
+
+    // Numero de sequencia (aumenta a cada snapshot)
+    private final long version;
+
+    // Celulas do nivel atual neste snapshot (null se nao ha mapa)
+    private final SnapshotGrid grid;
+
+    // Indice do nivel atual
+    private final int level;
+
+    // Vidas do jogador
+    private final int lives;
+
+    // Posicao do barco
+    private final int boatRow, boatCol;
+
+    // Indica se o jogo terminou (game over ou ultimo nivel completado)
+    private final boolean finished;
+
+    // Posicoes empacotadas das celulas que mudaram desde o snapshot anterior
+    private final int[] changedCells;
+
+    /**
+    * Construtor do GameSnapshot
+    * @param version Numero de sequencia
+    * @param grid Celulas do nivel atual (vista imutavel)
+    * @param level Indice do nivel atual
+    * @param lives Vidas do jogador
+    * @param boatRow Linha do barco
+    * @param boatCol Coluna do barco
+    * @param finished true se o jogo terminou
+    * @param changedCells Celulas alteradas (posicoes empacotadas)
+     */
+    public GameSnapshot(long version, SnapshotGrid grid, int level, int lives, int boatRow, int boatCol,
+                        boolean finished, int[] changedCells) {
+        this.version = version;
+        this.grid = grid;
+        this.level = level;
+        this.lives = lives;
+        this.boatRow = boatRow;
+        this.boatCol = boatCol;
+        this.finished = finished;
+        this.changedCells = changedCells;
+    }
+
+    /**
+    * Obtem o numero de sequencia do snapshot
+    * @return Numero de sequencia
+     */
+    public long getVersion() { return version; }
+
+    /**
+    * Obtem as celulas do nivel atual neste snapshot
+    * @return Vista imutavel das celulas, ou null se nao ha mapa
+     */
+    public SnapshotGrid getGrid() { return grid; }
+
+    /**
+    * Verifica se outro snapshot e do mesmo nivel (para saber se o nivel mudou)
+    * @param other Outro snapshot
+    * @return true se as celulas dos dois vem do mesmo mapa
+     */
+    public boolean sameLevel(GameSnapshot other) {
+        return grid == null ? other.grid == null : grid.sameLevel(other.grid);
+    }
+
+    /**
+    * Obtem o indice do nivel atual
+    * @return Indice do nivel (0 = primeiro nivel)
+     */
+    public int getLevel() { return level; }
+
+    /**
+    * Obtem as vidas do jogador
+    * @return Numero de vidas
+     */
+    public int getLives() { return lives; }
+
+    /**
+    * Obtem a linha do barco
+    * @return Linha do barco
+     */
+    public int getBoatRow() { return boatRow; }
+
+    /**
+    * Obtem a coluna do barco
+    * @return Coluna do barco
+     */
+    public int getBoatCol() { return boatCol; }
+
+    /**
+    * Verifica se o jogo terminou
+    * @return true se houve game over ou o ultimo nivel foi completado
+     */
+    public boolean isFinished() { return finished; }
+
+    /**
+    * Obtem o numero de celulas alteradas
+    * @return Numero de celulas
+     */
+    public int getChangedCount() { return changedCells.length; }
+
+    /**
+    * Obtem uma celula alterada
+    * @param i Indice entre 0 e getChangedCount() - 1
+    * @return Posicao empacotada (linha * largura + coluna)
+     */
+    public int getChangedCell(int i) { return changedCells[i]; }
+}
@@ -0,0 +1,20 @@
+package project;
+
+/**
+ * Enum GameState - Estado de um jogo no motor
+ * PLAYING enquanto o jogador ainda pode jogar; COMPLETED quando o ultimo
+ * nivel foi completado; GAME_OVER quando ficou sem vidas ou tocou no pirata.
+ */
+public enum GameState {
+    PLAYING,
+    COMPLETED,
+    GAME_OVER;
+
+    /**
+    * Verifica se o jogo terminou
+    * @return true se o estado for COMPLETED ou GAME_OVER
+     */
+    public boolean isFinished() {
+        return this != PLAYING;
+    }
+}
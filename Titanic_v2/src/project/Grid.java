@@ -0,0 +1,96 @@
+package project;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classe Grid - Grelha mutavel do mapa guardada num unico array de chars
+ * As celulas estao guardadas linha a linha (row-major) num array plano,
+ * por isso alterar uma celula e feito no proprio array sem criar objetos novos
+ */
+public class Grid implements WritableGrid {
+
+    // Numero de colunas
+    private final int width;
+
+    // Numero de linhas
+    private final int height;
+
+    // Celulas da grelha (indice = linha * largura + coluna)
+    private final char[] cells;
+
+    /**
+    * Construtor da Grid
+    * Cria uma grelha preenchida com 'X' (fora do mapa)
+    * @param width Numero de colunas
+    * @param height Numero de linhas
+     */
+    public Grid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = new char[width * height];
+        Arrays.fill(cells, 'X');
+    }
+
+    /**
+    * Construtor da Grid a partir de um array de celulas ja preenchido
+    * @param width Numero de colunas
+    * @param height Numero de linhas
+    * @param cells Celulas linha a linha (o array passa a pertencer a grelha)
+     */
+    public Grid(int width, int height, char[] cells) {
+        if (cells.length != width * height) {
+            throw new IllegalArgumentException("Numero de celulas invalido: " + cells.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    /**
+    * Cria uma grelha a partir das linhas de um ficheiro de texto
+    * Linhas mais curtas sao completadas com 'X' (fora do mapa)
+    * @param lines Linhas do mapa
+    * @return Grelha com o conteudo das linhas
+     */
+    public static Grid fromLines(List<String> lines) {
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, line.length());
+        }
+        Grid grid = new Grid(width, lines.size());
+        for (int r = 0; r < lines.size(); r++) {
+            String line = lines.get(r);
+            // Copia a linha diretamente para o array da grelha
+            line.getChars(0, line.length(), grid.cells, r * width);
+        }
+        return grid;
+    }
+
+    /**
+    * Cria uma copia independente da grelha
+    * @return Nova grelha com as mesmas celulas
+     */
+    public Grid copy() {
+        return new Grid(width, height, cells.clone());
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public char get(int row, int col) {
+        return cells[row * width + col];
+    }
+
+    @Override
+    public void set(int row, int col, char symbol) {
+        cells[row * width + col] = symbol;
+    }
+}
@@ -0,0 +1,39 @@
+package project;
+
+/**
+ * Interface GridView - Vista apenas de leitura da grelha do mapa
+ * Permite que a GUI e outras classes consultem as celulas do mapa
+ * sem conseguirem altera-las nem depender da forma como estao guardadas
+ */
+public interface GridView {
+
+    /**
+    * Obtem a largura da grelha
+    * @return Numero de colunas
+     */
+    int getWidth();
+
+    /**
+    * Obtem a altura da grelha
+    * @return Numero de linhas
+     */
+    int getHeight();
+
+    /**
+    * Obtem o simbolo de uma celula
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @return Simbolo da celula
+     */
+    char get(int row, int col);
+
+    /**
+    * Verifica se uma posicao esta dentro dos limites da grelha
+    * @param row Linha a verificar
+    * @param col Coluna a verificar
+    * @return true se a posicao pertence a grelha, false caso contrario
+     */
+    default boolean inBounds(int row, int col) {
+        return row >= 0 && row < getHeight() && col >= 0 && col < getWidth();
+    }
+}
@@ -0,0 +1,150 @@
+package project;
+import java.util.Arrays;
+
+/**
+ * Classe IntIntHashMap - Tabela de dispersao de int para int sem objetos
+ * Usa enderecamento aberto com sondagem linear sobre dois arrays de inteiros,
+ * evitando o boxing de Integer de um java.util.HashMap.
+ * As chaves tem de ser nao negativas (sao usadas posicoes empacotadas).
+ *
+ * A entrada inicial de cada chave vem dos bits altos do produto pela constante
+ * de Fibonacci: as posicoes empacotadas (linha * largura + coluna) com larguras
+ * potencia de 2 so diferem nos bits altos, e os bits baixos do produto ficariam
+ * quase iguais, com longas sequencias de sondagem.
+ */
+public class IntIntHashMap {
+
+    // Marca de entrada vazia no array de chaves
+    private static final int EMPTY = -1;
+
+    // Chaves guardadas (EMPTY nas entradas livres)
+    private int[] keys;
+
+    // Valores associados a cada chave
+    private int[] values;
+
+    // Numero de entradas ocupadas
+    private int size;
+
+    // Deslocamento que deixa os log2(capacidade) bits altos do produto
+    private int shift;
+
+    /**
+    * Construtor do IntIntHashMap
+    * @param expectedSize Numero de entradas esperado
+     */
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 8;
+        // Mantem a tabela no maximo meio cheia
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+    * Obtem o numero de entradas
+    * @return Numero de chaves guardadas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+    * Associa um valor a uma chave (substitui o valor anterior se existir)
+    * @param key Chave (nao negativa)
+    * @param value Valor
+     */
+    public void put(int key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+    * Obtem o valor associado a uma chave
+    * @param key Chave a procurar
+    * @param defaultValue Valor devolvido se a chave nao existir
+    * @return Valor associado ou defaultValue
+     */
+    public int get(int key, int defaultValue) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? defaultValue : values[slot];
+    }
+
+    /**
+    * Verifica se uma chave existe
+    * @param key Chave a procurar
+    * @return true se a chave existe
+     */
+    public boolean containsKey(int key) {
+        return keys[find(key)] != EMPTY;
+    }
+
+    /**
+    * Procura a entrada de uma chave (ou a entrada livre onde deve ficar)
+    * @param key Chave a procurar
+    * @return Indice da entrada
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+    * Calcula a entrada inicial de uma chave
+    * @param key Chave
+    * @return Bits altos do produto pela constante de Fibonacci (dependem de todos os bits da chave)
+     */
+    private int home(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+    * Conta as entradas percorridas ate encontrar uma chave (ou a entrada livre)
+    * Usado para verificar a dispersao das chaves
+    * @param key Chave a procurar
+    * @return Numero de entradas visitadas (1 se a chave esta na sua entrada inicial)
+     */
+    int probeLength(int key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        int probes = 1;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+            probes++;
+        }
+        return probes;
+    }
+
+    /**
+    * Duplica a capacidade da tabela e volta a inserir todas as entradas
+     */
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        shift--;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package project;
+
+/**
+ * Classe LevelData - Conteudo de um nivel acabado de carregar
+ * Junta a grelha do nivel com as rotas de vortices declaradas no ficheiro,
+ * independentemente do formato (texto, binario ou paginado) em que o nivel estava guardado
+ *
+ * Os indices do nivel (LevelIndex) sao calculados logo ao carregar e nunca
+ * mudam de referencia, por isso copy() e overlay() podem ser chamados por varias
+ * threads ao mesmo tempo sem locks. Um nivel usado como modelo (com copy() ou
+ * overlay()) nao deve ser jogado diretamente: o Map usaria os seus indices.
+ */
+public class LevelData {
+
+    // Grelha do nivel
+    private final WritableGrid grid;
+
+    // Rotas de vortices em pares (origem, destino) empacotados
+    private final int[] vortexLinks;
+
+    // Indices do nivel modelo de onde esta copia veio (null se nao e uma copia)
+    private final LevelIndex sharedIndex;
+
+    // Indices deste nivel, calculados ao carregar (null numa copia)
+    private final LevelIndex index;
+
+    /**
+    * Construtor do LevelData
+    * Percorre a grelha uma vez para calcular os indices do nivel
+    * @param grid Grelha do nivel
+    * @param vortexLinks Rotas de vortices declaradas no ficheiro
+     */
+    public LevelData(WritableGrid grid, int[] vortexLinks) {
+        this.grid = grid;
+        this.vortexLinks = vortexLinks;
+        this.sharedIndex = null;
+        this.index = new LevelIndex(grid, vortexLinks);
+    }
+
+    /**
+    * Construtor do LevelData de uma copia de um nivel modelo
+    * @param grid Grelha da copia
+    * @param vortexLinks Rotas de vortices (partilhadas)
+    * @param sharedIndex Indices do modelo (calculados a partir da mesma grelha inicial)
+     */
+    private LevelData(WritableGrid grid, int[] vortexLinks, LevelIndex sharedIndex) {
+        this.grid = grid;
+        this.vortexLinks = vortexLinks;
+        this.sharedIndex = sharedIndex;
+        this.index = null;
+    }
+
+    /**
+    * Obtem a grelha do nivel
+    * @return Grelha do nivel
+     */
+    public WritableGrid getGrid() {
+        return grid;
+    }
+
+    /**
+    * Obtem as rotas de vortices declaradas no ficheiro
+    * @return Pares (origem, destino) empacotados
+     */
+    public int[] getVortexLinks() {
+        return vortexLinks;
+    }
+
+    /**
+    * Obtem os indices do nivel modelo de onde esta copia veio
+    * O Map usa-os (com LevelIndex.fork()) em vez de voltar a indexar a grelha
+    * @return Indices partilhados, ou null se este nivel nao e uma copia
+     */
+    public LevelIndex getSharedIndex() {
+        return sharedIndex;
+    }
+
+    /**
+    * Obtem os indices deste nivel (calculados ao carregar)
+    * Num nivel modelo sao partilhados por todas as copias; num nivel jogado
+    * diretamente passam a ser os indices do Map
+    * @return Indices do nivel, ou null se este nivel e uma copia (ver getSharedIndex)
+     */
+    public LevelIndex getIndex() {
+        return index;
+    }
+
+    /**
+    * Obtem os indices a partilhar com uma copia deste nivel
+    * @return Indices do nivel
+    * @throws UnsupportedOperationException Se este nivel ja e uma copia
+     */
+    private LevelIndex templateIndex() {
+        if (index == null) {
+            throw new UnsupportedOperationException("So e possivel copiar um nivel carregado");
+        }
+        return index;
+    }
+
+    /**
+    * Cria uma copia do nivel que pode ser jogada sem alterar este
+    * (as rotas de vortices e os indices que nunca mudam sao partilhados)
+    * @return Copia do nivel
+    * @throws UnsupportedOperationException Se a grelha nao for uma Grid em memoria (mundo paginado)
+    * ou se este nivel ja for uma copia
+     */
+    public LevelData copy() {
+        if (!(grid instanceof Grid)) {
+            throw new UnsupportedOperationException("So e possivel copiar niveis em memoria");
+        }
+        return new LevelData(((Grid) grid).copy(), vortexLinks, templateIndex());
+    }
+
+    /**
+    * Cria uma vista do nivel que pode ser jogada sem alterar este, sem copiar a grelha
+    * As alteracoes ficam numa OverlayGrid propria; este nivel passa a ser so lido
+    * e pode ser partilhado por varias sessoes em threads diferentes.
+    * Os indices do nivel (bits, distancias, agua livre) tambem sao partilhados
+    * @return Nivel com a grelha copy-on-write
+    * @throws UnsupportedOperationException Se este nivel ja for uma copia
+     */
+    public LevelData overlay() {
+        return new LevelData(new OverlayGrid(grid), vortexLinks, templateIndex());
+    }
+}
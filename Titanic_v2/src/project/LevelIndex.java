@@ -0,0 +1,145 @@
+package project;
+
+/**
+ * Classe LevelIndex - Indices de um nivel calculados ao carregar
+ * Junta o que o Map precisa de saber sobre a grelha sem a voltar a percorrer:
+ * - indice dos elementos por simbolo e conjunto das celulas de agua livres
+ * - bits das celulas navegaveis e das celulas seguras
+ * - tabela de rotas dos vortices e distancia de cada celula a ilha
+ *
+ * Os bits, as rotas e as distancias nunca mudam durante o jogo (as celulas so
+ * mudam entre agua, sereia e explosivo). Por isso um nivel modelo calcula os
+ * indices uma vez e cada sessao usa fork(): partilha as partes que nunca mudam
+ * e fica com copias copy-on-write dos elementos e da agua livre, que so guardam
+ * o que a sessao alterou.
+ *
+ * Num mundo paginado so existe o indice de elementos (lido do ficheiro): os
+ * restantes indices teriam o tamanho do mundo e ficam a null.
+ */
+public class LevelIndex {
+
+    // Indice das posicoes de cada tipo de elemento
+    private final EntityIndex entities;
+
+    // Conjunto das celulas de agua livres (onde podem surgir explosivos)
+    private final FreeCells freeCells;
+
+    // Celulas onde o barco pode entrar (nao sao 'X' nem 'R'), 1 bit por celula
+    private final BitGrid walkable;
+
+    // Celulas onde o barco pode entrar sem perigo (tambem exclui o pirata)
+    private final BitGrid safe;
+
+    // Tabela de encaminhamento dos vortices
+    private final VortexRoutes routes;
+
+    // Distancia de cada celula a ilha mais proxima
+    private final DistanceField distances;
+
+    /**
+    * Construtor do LevelIndex
+    * Percorre a grelha uma unica vez e calcula todos os indices
+    * @param grid Grelha do nivel (no estado inicial)
+    * @param vortexLinks Rotas de vortices declaradas no nivel
+     */
+    public LevelIndex(GridView grid, int[] vortexLinks) {
+        int width = grid.getWidth();
+        if (grid instanceof ChunkedGrid) {
+            // Mundo paginado: o indice vem do ficheiro, sem ler os blocos
+            entities = ((ChunkedGrid) grid).readEntityIndex();
+            freeCells = null;
+            walkable = null;
+            safe = null;
+        } else {
+            entities = new EntityIndex(width);
+            freeCells = new FreeCells(width * grid.getHeight());
+            walkable = new BitGrid(width * grid.getHeight());
+            safe = new BitGrid(width * grid.getHeight());
+            for (int r = 0; r < grid.getHeight(); r++) {
+                for (int c = 0; c < width; c++) {
+                    char symbol = grid.get(r, c);
+                    entities.add(symbol, r, c);
+                    if (symbol == '.') {
+                        freeCells.add(r * width + c);
+                    }
+                    walkable.set(r * width + c, !Map.blocksBoat(symbol));
+                    safe.set(r * width + c, Map.isSafe(symbol));
+                }
+            }
+        }
+        routes = new VortexRoutes(entities, vortexLinks);
+        // A distancia a ilha precisa das rotas
+        distances = safe == null ? null
+            : new DistanceField(width, grid.getHeight(), safe, entities, routes);
+    }
+
+    /**
+    * Construtor de uma copia para uma sessao (ver fork())
+    * @param base Indices do nivel modelo
+     */
+    private LevelIndex(LevelIndex base) {
+        entities = base.entities.fork();
+        freeCells = base.freeCells == null ? null : base.freeCells.fork();
+        walkable = base.walkable;
+        safe = base.safe;
+        routes = base.routes;
+        distances = base.distances;
+    }
+
+    /**
+    * Cria os indices de uma sessao a partir dos indices deste nivel modelo
+    * Este objeto passa a ser so lido e pode ser partilhado entre threads
+    * @return Indices que partilham os bits, as rotas e as distancias
+     */
+    public LevelIndex fork() {
+        return new LevelIndex(this);
+    }
+
+    /**
+    * Obtem o indice das posicoes dos elementos
+    * @return Indice de elementos
+     */
+    public EntityIndex getEntities() {
+        return entities;
+    }
+
+    /**
+    * Obtem o conjunto das celulas de agua livres
+    * @return Agua livre, ou null num mundo paginado
+     */
+    public FreeCells getFreeCells() {
+        return freeCells;
+    }
+
+    /**
+    * Obtem os bits das celulas navegaveis
+    * @return Celulas navegaveis, ou null num mundo paginado
+     */
+    public BitGrid getWalkable() {
+        return walkable;
+    }
+
+    /**
+    * Obtem os bits das celulas seguras
+    * @return Celulas seguras, ou null num mundo paginado
+     */
+    public BitGrid getSafe() {
+        return safe;
+    }
+
+    /**
+    * Obtem a tabela de encaminhamento dos vortices
+    * @return Rotas dos vortices
+     */
+    public VortexRoutes getRoutes() {
+        return routes;
+    }
+
+    /**
+    * Obtem a distancia de cada celula a ilha
+    * @return Campo de distancias, ou null num mundo paginado
+     */
+    public DistanceField getDistances() {
+        return distances;
+    }
+}
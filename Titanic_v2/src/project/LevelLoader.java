@@ -0,0 +1,336 @@
+package project;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Classe LevelLoader - Carrega niveis em formato de texto ou binario
+ *
+ * Formato binario (.lvl), little-endian:
+ * - cabecalho: "TTNL" (4 bytes), versao (int), largura (int), altura (int), checksum CRC32 (int)
+ *   dos 16 bytes anteriores do cabecalho e de todo o resto do ficheiro
+ * - numero de inteiros das rotas de vortices (int) seguido desses inteiros
+ * - celulas codificadas em RLE: simbolo (1 byte) e comprimento da sequencia (varint)
+ *
+ * O ficheiro binario e lido atraves de um FileChannel mapeado em memoria,
+ * sem criar uma String por linha. Os mundos paginados (.world, ver ChunkedGrid)
+ * nao sao lidos de uma vez: os blocos sao carregados a medida que sao usados.
+ * O metodo main converte os niveis de texto.
+ */
+public class LevelLoader {
+
+    // Assinatura no inicio de um ficheiro binario ("TTNL")
+    private static final int MAGIC = 0x4C4E5454;
+
+    // Versao atual do formato binario (a versao 2 inclui o cabecalho no checksum)
+    private static final int VERSION = 2;
+
+    // Tamanho do cabecalho em bytes
+    private static final int HEADER_SIZE = 20;
+
+    // Bytes do cabecalho cobertos pelo checksum (tudo menos o proprio checksum)
+    private static final int CHECKED_HEADER_SIZE = 16;
+
+    // Maior numero de celulas aceite num nivel binario (256M celulas, 512 MB de chars);
+    // niveis maiores devem ser mundos paginados
+    private static final int MAX_CELLS = 1 << 28;
+
+    /**
+    * Carrega um nivel escolhendo o formato automaticamente
+    * Se existir um ficheiro .lvl compilado ao lado de um .txt (e nao mais antigo), usa-o
+    * (se nao for valido volta ao texto); caso contrario reconhece o formato (texto, binario ou paginado) pela assinatura do ficheiro
+    * @param path Caminho do ficheiro do nivel
+    * @return Conteudo do nivel
+    * @throws IOException Se o ficheiro nao puder ser lido ou estiver corrompido
+     */
+    public static LevelData load(String path) throws IOException {
+        Path file = Paths.get(path);
+        Path compiled = compiledPath(file);
+        if (!compiled.equals(file) && Files.exists(compiled)
+                && Files.getLastModifiedTime(compiled).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+            // O .lvl ao lado do .txt e so uma cache: se for invalido (ou de outra versao) usa o texto
+            try {
+                return loadBinary(compiled);
+            } catch (IOException e) {
+                System.err.println("Nivel compilado ignorado: " + e.getMessage());
+            }
+        }
+        int magic = readMagic(file);
+        if (magic == MAGIC) {
+            return loadBinary(file);
+        }
+        if (magic == ChunkedGrid.MAGIC) {
+            return loadChunked(file);
+        }
+        return loadText(file);
+    }
+
+    /**
+    * Le a assinatura (primeiros 4 bytes) de um ficheiro
+    * @param file Ficheiro a verificar
+    * @return Assinatura, ou 0 se o ficheiro tiver menos de 4 bytes
+    * @throws IOException Se o ficheiro nao puder ser lido
+     */
+    private static int readMagic(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // Continua ate ler os 4 bytes ou chegar ao fim
+            }
+            return head.hasRemaining() ? 0 : head.getInt(0);
+        }
+    }
+
+    /**
+    * Abre um mundo paginado em blocos (os blocos sao lidos quando forem usados)
+    * @param file Ficheiro .world
+    * @return Conteudo do nivel com uma grelha paginada
+    * @throws IOException Se o ficheiro nao puder ser aberto
+     */
+    public static LevelData loadChunked(Path file) throws IOException {
+        ChunkedGrid grid = new ChunkedGrid(file, ChunkedGrid.DEFAULT_MAX_CHUNKS);
+        return new LevelData(grid, grid.getVortexLinks());
+    }
+
+    /**
+    * Carrega um nivel a partir de um ficheiro de texto
+    * As linhas comecadas por '@' declaram rotas de vortices (ver VortexRoutes)
+    * @param file Ficheiro de texto
+    * @return Conteudo do nivel
+    * @throws IOException Se o ficheiro nao puder ser lido
+     */
+    public static LevelData loadText(Path file) throws IOException {
+        // Separa as linhas da grelha das linhas de rotas
+        ArrayList<String> rows = new ArrayList<>();
+        ArrayList<String> directives = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.startsWith("@")) {
+                directives.add(line);
+            } else {
+                rows.add(line);
+            }
+        }
+        Grid grid = Grid.fromLines(rows);
+        return new LevelData(grid, VortexRoutes.parse(directives, grid.getWidth(), grid.getHeight()));
+    }
+
+    /**
+    * Carrega um nivel a partir de um ficheiro binario mapeado em memoria
+    * @param file Ficheiro binario
+    * @return Conteudo do nivel
+    * @throws IOException Se o ficheiro nao puder ser lido ou estiver corrompido
+     */
+    public static LevelData loadBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            // Cabecalho
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Nao e um nivel binario: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versao do nivel nao suportada: " + version);
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            // Confirma o checksum do cabecalho e do resto do ficheiro antes de o interpretar
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(CHECKED_HEADER_SIZE));
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum invalido no nivel: " + file);
+            }
+
+            // Mesmo com o checksum certo as dimensoes podem ter sido escritas mal:
+            // dimensoes invalidas dariam alocacoes negativas, overflow ou falta de memoria
+            if (width <= 0 || height <= 0 || (long) width * height > MAX_CELLS) {
+                throw new IOException("Dimensoes do nivel invalidas: " + width + "x" + height);
+            }
+
+            // Rotas de vortices (cada inteiro ocupa 4 bytes do que resta do ficheiro)
+            int linkCount = buffer.getInt();
+            if (linkCount < 0 || linkCount > buffer.remaining() / 4) {
+                throw new IOException("Numero de rotas de vortices invalido: " + linkCount);
+            }
+            int[] links = new int[linkCount];
+            for (int i = 0; i < links.length; i++) {
+                links[i] = buffer.getInt();
+                if (links[i] < 0 || links[i] >= width * height) {
+                    throw new IOException("Rota de vortice fora do nivel: " + links[i]);
+                }
+            }
+
+            // Celulas em RLE, descodificadas diretamente para o array da grelha
+            char[] cells;
+            try {
+                cells = new char[width * height];
+            } catch (OutOfMemoryError e) {
+                throw new IOException("Nivel demasiado grande para a memoria: " + width + "x" + height);
+            }
+            int pos = 0;
+            while (pos < cells.length) {
+                char symbol = (char) (buffer.get() & 0xFF);
+                int run = readVarInt(buffer);
+                if (run <= 0 || pos + run > cells.length) {
+                    throw new IOException("Dados de celulas invalidos no nivel: " + file);
+                }
+                Arrays.fill(cells, pos, pos + run, symbol);
+                pos += run;
+            }
+            return new LevelData(new Grid(width, height, cells), links);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Nivel binario truncado: " + file, e);
+        }
+    }
+
+    /**
+    * Guarda um nivel no formato binario
+    * @param level Conteudo do nivel
+    * @param file Ficheiro de destino
+    * @throws IOException Se o ficheiro nao puder ser escrito
+     */
+    public static void writeBinary(LevelData level, Path file) throws IOException {
+        GridView grid = level.getGrid();
+        int[] links = level.getVortexLinks();
+        int count = grid.getWidth() * grid.getHeight();
+
+        // No pior caso cada celula ocupa 1 byte de simbolo + 1 byte de comprimento
+        ByteBuffer body = ByteBuffer.allocate(4 + links.length * 4 + count * 2 + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(links.length);
+        for (int link : links) {
+            body.putInt(link);
+        }
+        int pos = 0;
+        while (pos < count) {
+            char symbol = grid.get(pos / grid.getWidth(), pos % grid.getWidth());
+            int run = 1;
+            while (pos + run < count
+                    && grid.get((pos + run) / grid.getWidth(), (pos + run) % grid.getWidth()) == symbol) {
+                run++;
+            }
+            body.put((byte) symbol);
+            writeVarInt(body, run);
+            pos += run;
+        }
+        body.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(grid.getWidth()).putInt(grid.getHeight());
+
+        // O checksum cobre o cabecalho (sem ele proprio) e o corpo
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate().flip());
+        crc.update(body.duplicate());
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    /**
+    * Obtem o caminho do ficheiro binario correspondente a um nivel de texto
+    * @param file Ficheiro do nivel
+    * @return Caminho com extensao .lvl (ou o proprio caminho se nao for .txt)
+     */
+    public static Path compiledPath(Path file) {
+        return withExtension(file, ".lvl");
+    }
+
+    /**
+    * Troca a extensao .txt de um caminho
+    * @param file Ficheiro do nivel
+    * @param extension Nova extensao (com o ponto)
+    * @return Caminho com a nova extensao (ou o proprio caminho se nao for .txt)
+     */
+    private static Path withExtension(Path file, String extension) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".txt")) {
+            return file;
+        }
+        return file.resolveSibling(name.substring(0, name.length() - 4) + extension);
+    }
+
+    /**
+    * Le um inteiro codificado em varint (7 bits por byte)
+    * @param buffer Buffer de leitura
+    * @return Valor lido
+     */
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 35);
+        return value;
+    }
+
+    /**
+    * Escreve um inteiro nao negativo em varint (7 bits por byte)
+    * @param buffer Buffer de escrita
+    * @param value Valor a escrever
+     */
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+    * Converte niveis de texto para o formato binario
+    * Uso: java project.LevelLoader [-chunked] nivel1.txt [nivel2.txt ...]
+    * Cada nivel e guardado ao lado do original com a extensao .lvl
+    * (ou .world, paginado em blocos, com a opcao -chunked)
+    * @param args Caminhos dos niveis de texto
+     */
+    public static void main(String[] args) {
+        boolean chunked = false;
+        for (String arg : args) {
+            if (arg.equals("-chunked")) {
+                chunked = true;
+                continue;
+            }
+            try {
+                Path source = Paths.get(arg);
+                Path target = withExtension(source, chunked ? ".world" : ".lvl");
+                if (target.equals(source)) {
+                    System.err.println("Ignorado (nao e .txt): " + arg);
+                    continue;
+                }
+                LevelData level = loadText(source);
+                if (chunked) {
+                    ChunkedGrid.write(level.getGrid(), level.getVortexLinks(), target, ChunkedGrid.DEFAULT_CHUNK_SIZE);
+                } else {
+                    writeBinary(level, target);
+                }
+                System.out.println(source + " -> " + target);
+            } catch (Exception e) {
+                System.err.println("Erro ao converter " + arg + ": " + e.getMessage());
+            }
+        }
+    }
+}
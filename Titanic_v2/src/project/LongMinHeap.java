@@ -0,0 +1,91 @@
+package project;
+import java.util.Arrays;
+
+/**
+ * Classe LongMinHeap - Fila de prioridade de valores long (heap binario minimo)
+ * Guarda os valores num array primitivo, sem objetos por entrada.
+ * Usada pelo RouteSolver com chaves empacotadas (custo nos 32 bits altos,
+ * estado nos 32 bits baixos), por isso o menor valor e o de menor custo.
+ */
+public class LongMinHeap {
+
+    // Valores do heap (os filhos de i estao em 2i+1 e 2i+2)
+    private long[] heap;
+
+    // Numero de valores guardados
+    private int size;
+
+    /**
+    * Construtor do LongMinHeap
+    * @param capacity Capacidade inicial
+     */
+    public LongMinHeap(int capacity) {
+        heap = new long[Math.max(capacity, 16)];
+    }
+
+    /**
+    * Adiciona um valor
+    * @param value Valor a adicionar
+     */
+    public void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        // Sobe o valor ate o pai ser menor ou igual
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    /**
+    * Remove e devolve o menor valor
+    * @return Menor valor
+    * @throws IllegalStateException Se o heap estiver vazio
+     */
+    public long pop() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap vazio");
+        }
+        long top = heap[0];
+        long last = heap[--size];
+        // Desce o ultimo valor a partir da raiz ate os filhos serem maiores ou iguais
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+    * Verifica se o heap esta vazio
+    * @return true se nao tiver valores
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    * Obtem o numero de valores guardados
+    * @return Numero de valores
+     */
+    public int size() {
+        return size;
+    }
+}
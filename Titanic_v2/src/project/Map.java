@@ -1,6 +1,6 @@
 package project;
 import java.util.*;
-import java.nio.file.*;
+import java.util.random.RandomGenerator;
 
 /**
  * Classe Map - Representa o mapa/nivel do jogo
@@ -12,123 +12,253 @@ import java.nio.file.*;
  */
 public class Map {
 
-    // Grelha do mapa (cada String representa uma linha)
-    private ArrayList<String> grid;
+    // Distancia maxima ao barco onde surgem explosivos num mundo paginado
+    private static final int CHUNKED_SPAWN_RADIUS = 32;
+
+    // Numero de tentativas para encontrar agua livre num mundo paginado
+    private static final int CHUNKED_SPAWN_ATTEMPTS = 64;
+
+    // Grelha do mapa (array plano em memoria, ou paginada em blocos num mundo grande)
+    private WritableGrid grid;
+
+    // Grelha carregada do nivel (e a que tem de ser fechada, mesmo depois de freeze())
+    private final WritableGrid loadedGrid;
     
     // Barco controlado pelo jogador
     private Boat boat;
     
-    // Lista de portais no mapa
+    // Lista de portais no mapa (criada na primeira consulta, a partir do indice)
     private ArrayList<Vortex> vortexes;
     
-    // Lista de sereias no mapa
-    private ArrayList<Mermaid> mermaids;
-    
     // Pirata no mapa
     private Pirate pirate;
+
+    // Tabela de encaminhamento dos vortices
+    private VortexRoutes routes;
+
+    // Indice das posicoes de cada tipo de elemento
+    private EntityIndex entities;
+
+    // Conjunto das celulas de agua livres (onde podem surgir explosivos)
+    // Fica a null num mundo paginado, que e demasiado grande para o indexar
+    private FreeCells freeCells;
+
+    // Celulas onde o barco pode entrar (nao sao 'X' nem 'R'), 1 bit por celula
+    // Fica a null num mundo paginado, como o conjunto de agua livre
+    private BitGrid walkable;
+
+    // Distancia de cada celula a ilha mais proxima (null num mundo paginado)
+    private DistanceField distances;
+
+    // Posicoes adjacentes ao barco (reutilizado para nao alocar em cada jogada)
+    private final int[] adjacent = new int[4];
     
     // Referencia ao motor do jogo
     private GameEngine engine;
 
+    // Quem e avisado quando uma celula muda (vista do mapa), pode ser null
+    private CellListener cellListener;
+
+    // Indica se o mapa ja foi fechado
+    private boolean closed;
+
     /**
     * Construtor do Map
     * Carrega o mapa e inicializa todos os elementos especiais
-    * @param filePath Caminho do ficheiro de texto com o mapa
+    * @param filePath Caminho do ficheiro do mapa (texto ou binario)
     * @param engine Motor do jogo para controlar mecanicas
      */
     public Map(String filePath, GameEngine engine) {
+        this(loadMap(filePath), engine);
+    }
+
+    /**
+    * Construtor do Map a partir de um nivel ja carregado
+    * Se o nivel vem de um modelo partilhado (LevelData.overlay() ou copy()), usa
+    * os indices do modelo, que so sao calculados uma vez; senao usa os indices
+    * calculados ao carregar o nivel
+    * @param level Grelha e rotas do nivel
+    * @param engine Motor do jogo para controlar mecanicas
+     */
+    public Map(LevelData level, GameEngine engine) {
         this.engine = engine;
-        // Carrega a grelha do mapa do ficheiro
-        grid = loadMap(filePath);
-        // Inicializa as listas de elementos especiais
-        vortexes = new ArrayList<>();
-        mermaids = new ArrayList<>();
-        // Procura e inicializa todos os elementos no mapa
-        findBoatPosition();
-        findVortexes();
-        findMermaids();
-        findPirate();
+        grid = level.getGrid();
+        loadedGrid = grid;
+        // Indices do nivel: partilhados com o modelo, ou os calculados ao carregar o nivel
+        LevelIndex shared = level.getSharedIndex();
+        LevelIndex index = shared != null ? shared.fork() : level.getIndex();
+        entities = index.getEntities();
+        freeCells = index.getFreeCells();
+        walkable = index.getWalkable();
+        routes = index.getRoutes();
+        distances = index.getDistances();
+        createElements();
     }
 
     /**
-    * Carrega o mapa a partir de um ficheiro de texto
+    * Carrega o mapa a partir de um ficheiro
+    * O formato (texto ou binario) e escolhido automaticamente pelo LevelLoader
     * @param path Caminho do ficheiro
-    * @return Lista de Strings, cada uma representando uma linha do mapa
+    * @return Grelha e rotas do nivel
      */
-    private ArrayList<String> loadMap(String path) {
+    private static LevelData loadMap(String path) {
         try {
-            // Le todas as linhas do ficheiro
-            return new ArrayList<>(Files.readAllLines(Paths.get(path)));
+            return LevelLoader.load(path);
         } catch (Exception e) {
-            // Se houver erro, imprime e retorna lista vazia
+            // Se houver erro, imprime e usa uma grelha vazia
             e.printStackTrace();
-            return new ArrayList<>();
+            return new LevelData(new Grid(0, 0), new int[0]);
         }
     }
 
     /**
-    * Procura a posicao inicial do barco no mapa
+    * Cria o barco e o pirata a partir do indice
+    * Os vortices e as sereias so sao criados se forem pedidos (getVortexes e
+    * getMermaids): o jogo usa o indice, e assim uma sessao num nivel partilhado
+    * nao cria um objeto por elemento
      */
-    private void findBoatPosition() {
-        for (int r = 0; r < grid.size(); r++) {
-            for (int c = 0; c < grid.get(r).length(); c++) {
-                // Se encontrar 'B', cria o barco nessa posicao
-                if (grid.get(r).charAt(c) == 'B') {
-                    boat = new Boat(r, c);
-                    return;
-                }
-            }
+    private void createElements() {
+        // Barco (simbolo 'B')
+        int pos = entities.first('B');
+        if (pos >= 0) {
+            boat = new Boat(entities.rowOf(pos), entities.colOf(pos));
+        }
+        // Pirata (simbolo 'P')
+        pos = entities.first('P');
+        if (pos >= 0) {
+            pirate = new Pirate(entities.rowOf(pos), entities.colOf(pos));
         }
     }
 
     /**
-    * Procura todos os vortices no mapa (simbolo 'V')
-    * e adiciona-os a lista
+    * Altera o simbolo de uma celula mantendo o indice de elementos atualizado
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @param symbol Novo simbolo
      */
-    private void findVortexes() {
-        for (int r = 0; r < grid.size(); r++) {
-            for (int c = 0; c < grid.get(r).length(); c++) {
-                if (grid.get(r).charAt(c) == 'V') {
-                    vortexes.add(new Vortex(r, c));
-                }
-            }
+    private void setCell(int row, int col, char symbol) {
+        char old = grid.get(row, col);
+        if (old == symbol) {
+            return;
+        }
+        entities.remove(old, row, col);
+        grid.set(row, col, symbol);
+        entities.add(symbol, row, col);
+        fireCellChanged(row, col);
+        // Num mundo paginado nao ha conjunto de agua livre
+        int packed = row * grid.getWidth() + col;
+        if (freeCells == null) {
+            return;
+        }
+        // As celulas so mudam entre agua, sereia e explosivo (todas navegaveis e seguras),
+        // por isso os bits navegaveis e as distancias a ilha nunca mudam
+        // Mantem o conjunto de agua livre atualizado
+        if (old == '.') {
+            freeCells.remove(packed);
+        } else if (symbol == '.') {
+            freeCells.add(packed);
         }
     }
 
     /**
-    * Procura todas as sereias no mapa (simbolo 'M')
-    * e adiciona-as a lista
+    * Define quem e avisado quando uma celula do mapa muda
+    * @param listener Objeto a avisar (null para nenhum)
      */
-    private void findMermaids() {
-        for (int r = 0; r < grid.size(); r++) {
-            for (int c = 0; c < grid.get(r).length(); c++) {
-                if (grid.get(r).charAt(c) == 'M') {
-                    mermaids.add(new Mermaid(r, c));
-                }
-            }
+    public void setCellListener(CellListener listener) {
+        this.cellListener = listener;
+    }
+
+    /**
+    * Avisa o listener de que uma celula mudou
+    * @param row Linha da celula
+    * @param col Coluna da celula
+     */
+    private void fireCellChanged(int row, int col) {
+        if (cellListener != null) {
+            cellListener.cellChanged(row, col);
         }
     }
 
     /**
-    * Procura o pirata no mapa (simbolo 'P')
+    * Obtem a grelha do mapa (apenas leitura)
+     * @return Vista da grelha do mapa
+     */
+    public GridView getGrid() {
+        return grid;
+    }
+
+    /**
+    * Congela as celulas atuais para poderem ser lidas noutra thread sem locks
+    * A grelha passa a ser uma OverlayGrid por cima da grelha atual, que nunca
+    * mais e alterada: as alteracoes seguintes ficam na camada de cima.
+    * So deve ser chamado pela thread que joga (ver Simulation)
+    * @return Grelha congelada (so lida)
      */
-    private void findPirate() {
-        for (int r = 0; r < grid.size(); r++) {
-            for (int c = 0; c < grid.get(r).length(); c++) {
-                if (grid.get(r).charAt(c) == 'P') {
-                    pirate = new Pirate(r, c);
-                    return;
-                }
+    public GridView freeze() {
+        GridView frozen = grid;
+        grid = new OverlayGrid(frozen);
+        return frozen;
+    }
+
+    /**
+    * Obtem o indice das posicoes dos elementos do mapa
+    * Permite consultas como "todos os explosivos" ou "sereia mais proxima"
+    * sem percorrer a grelha
+     * @return Indice de elementos
+     */
+    public EntityIndex getEntities() {
+        return entities;
+    }
+
+    /**
+    * Obtem a distancia (em jogadas) de uma celula a ilha mais proxima
+    * Evita rochas e o pirata e conta os teletransportes dos vortices
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @return Numero minimo de jogadas, ou -1 se nao ha caminho (ou o mapa e um mundo paginado)
+     */
+    public int getDistanceToIsland(int row, int col) {
+        if (distances == null || !grid.inBounds(row, col)) {
+            return -1;
+        }
+        return distances.distance(row * grid.getWidth() + col);
+    }
+
+    /**
+    * Obtem os vortices do mapa
+    * @return Lista dos vortices (os vortices nunca mudam de lugar)
+     */
+    public List<Vortex> getVortexes() {
+        if (vortexes == null) {
+            vortexes = new ArrayList<>(entities.count('V'));
+            for (int i = 0; i < entities.count('V'); i++) {
+                int pos = entities.get('V', i);
+                vortexes.add(new Vortex(entities.rowOf(pos), entities.colOf(pos)));
             }
         }
+        return Collections.unmodifiableList(vortexes);
     }
 
     /**
-    * Obtem a grelha do mapa
-     * @return Lista com as linhas do mapa
+    * Obtem as sereias que ainda estao no mapa
+    * @return Lista das sereias por apanhar
      */
-    public ArrayList<String> getGrid() {
-        return grid;
+    public List<Mermaid> getMermaids() {
+        // Criada em cada consulta: as sereias apanhadas saem do indice
+        ArrayList<Mermaid> mermaids = new ArrayList<>(entities.count('M'));
+        for (int i = 0; i < entities.count('M'); i++) {
+            int pos = entities.get('M', i);
+            mermaids.add(new Mermaid(entities.rowOf(pos), entities.colOf(pos)));
+        }
+        return mermaids;
+    }
+
+    /**
+    * Obtem a tabela de encaminhamento dos vortices
+    * @return Rotas dos vortices do nivel
+     */
+    public VortexRoutes getRoutes() {
+        return routes;
     }
 
     /**
@@ -147,13 +277,15 @@ public class Map {
      */
     public boolean canMoveTo(int row, int col) {
         // Verifica se esta dentro dos limites do mapa
-        if (row < 0 || row >= grid.size() || col < 0 || col >= grid.get(0).length()) {
+        if (!grid.inBounds(row, col)) {
             return false;
         }
-        // Obtem o simbolo da celula de destino
-        char cell = grid.get(row).charAt(col);
+        // Um unico teste de bit (exceto num mundo paginado)
+        if (walkable != null) {
+            return walkable.get(row * grid.getWidth() + col);
+        }
         // Nao pode mover para 'X' (fora do mapa) nem 'R' (rocha)
-        return cell != 'X' && cell != 'R';
+        return !blocksBoat(grid.get(row, col));
     }
 
     /**
@@ -164,17 +296,21 @@ public class Map {
     public void moveBoat(int newRow, int newCol) {
         // Verifica se o movimento e valido
         if (canMoveTo(newRow, newCol)) {
+            // Guarda a posicao antiga para a redesenhar
+            int oldRow = boat.getRow();
+            int oldCol = boat.getCol();
+
             // Move o barco
             boat.move(newRow, newCol);
             
             // Verifica se moveu para um vortice e teletransporta
-            if (grid.get(newRow).charAt(newCol) == 'V') {
+            if (grid.get(newRow, newCol) == 'V') {
                 teleportBoat();
             }
             
             // Verifica se moveu para uma sereia e ganha vidas
-            if (grid.get(boat.getRow()).charAt(boat.getCol()) == 'M') {
-                engine.gainLife(10); // Ganha 10 vidas
+            if (grid.get(boat.getRow(), boat.getCol()) == 'M') {
+                engine.mermaidCollected(); // Ganha 10 vidas
                 removeMermaid(boat.getRow(), boat.getCol());
             }
             
@@ -184,7 +320,7 @@ public class Map {
             }
             
             // Verifica colisoes apos o movimento
-            char current = grid.get(boat.getRow()).charAt(boat.getCol());
+            char current = grid.get(boat.getRow(), boat.getCol());
             
             // Se tocou no pirata e Game Over imediato
             if (current == 'P') {
@@ -192,25 +328,25 @@ public class Map {
             } 
             // Se tocou num explosivo, perde 5 vidas
             else if (current == 'E') {
-                engine.loseLife(5);
+                engine.explosiveHit();
                 removeExplosive(boat.getRow(), boat.getCol());
             }
+
+            // Avisa que as celulas de onde o barco saiu e onde chegou mudaram
+            fireCellChanged(oldRow, oldCol);
+            fireCellChanged(boat.getRow(), boat.getCol());
         }
     }
 
     /**
-    * Teletransporta o barco para o outro vortice
-    * Quando o barco entra num vortice, e movido para o outro vortice do mapa
+    * Teletransporta o barco para o vortice de destino
+    * O destino e consultado na tabela de rotas construida ao carregar o nivel
      */
     private void teleportBoat() {
-        // Procura o vortice diferente do atual
-        for (Vortex v : vortexes) {
-            // Se nao for o vortice onde o barco esta
-            if (v.getRow() != boat.getRow() || v.getCol() != boat.getCol()) {
-                // Move o barco para esse vortice
-                boat.move(v.getRow(), v.getCol());
-                break;
-            }
+        int destination = routes.destination(boat.getRow() * grid.getWidth() + boat.getCol());
+        // Se o vortice tem rota, move o barco para o vortice de destino
+        if (destination >= 0) {
+            boat.move(destination / grid.getWidth(), destination % grid.getWidth());
         }
     }
 
@@ -221,44 +357,71 @@ public class Map {
      */
     private void removeMermaid(int row, int col) {
         // Substitui 'M' por '.' (agua)
-        StringBuilder sb = new StringBuilder(grid.get(row));
-        sb.setCharAt(col, '.');
-        grid.set(row, sb.toString());
+        setCell(row, col, '.');
     }
 
     /**
     * Obtem uma posicao vazia aleatoria no mapa,
     * excluindo as 4 posicoes adjacentes ao barco (para nao gerar explosivo ao lado)
-    * @return Array com [linha, coluna] da posicao escolhida
+    * @return Posicao empacotada escolhida, ou -1 se nao houver agua livre
      */
-    private int[] getRandomEmptyPositionExcludingAdjacent() {
-        Random rand = new Random();
-        int row, col;
+    private int getRandomEmptyPositionExcludingAdjacent() {
         int boatRow = boat.getRow();
         int boatCol = boat.getCol();
-        
-        // Continua a tentar ate encontrar uma posicao valida
-        do {
-            row = rand.nextInt(grid.size());
-            col = rand.nextInt(grid.get(0).length());
-        } while (grid.get(row).charAt(col) != '.' ||  // Nao pode ser celula ocupada
-             ((Math.abs(row - boatRow) == 1 && col == boatCol) ||  // Nao pode ser acima/abaixo
-              (Math.abs(col - boatCol) == 1 && row == boatRow)));   // Nao pode ser esquerda/direita
-        
-        return new int[]{row, col};
+        int count = 0;
+
+        if (freeCells == null) {
+            return getRandomEmptyPositionNearBoat();
+        }
+
+        // Junta as posicoes acima, abaixo, a esquerda e a direita do barco
+        if (grid.inBounds(boatRow - 1, boatCol)) adjacent[count++] = (boatRow - 1) * grid.getWidth() + boatCol;
+        if (grid.inBounds(boatRow + 1, boatCol)) adjacent[count++] = (boatRow + 1) * grid.getWidth() + boatCol;
+        if (grid.inBounds(boatRow, boatCol - 1)) adjacent[count++] = boatRow * grid.getWidth() + boatCol - 1;
+        if (grid.inBounds(boatRow, boatCol + 1)) adjacent[count++] = boatRow * grid.getWidth() + boatCol + 1;
+
+        // Sorteia diretamente entre as celulas livres que restam
+        // (o gerador e o do motor, com semente, para o jogo poder ser repetido)
+        return freeCells.randomExcluding(engine.getRandom(), adjacent, count);
+    }
+
+    /**
+    * Obtem uma posicao vazia aleatoria perto do barco num mundo paginado
+    * Sorteia apenas na zona a volta do barco (blocos ja em memoria),
+    * com um numero limitado de tentativas
+    * @return Posicao empacotada escolhida, ou -1 se nao encontrar agua livre
+     */
+    private int getRandomEmptyPositionNearBoat() {
+        int boatRow = boat.getRow();
+        int boatCol = boat.getCol();
+        int size = 2 * CHUNKED_SPAWN_RADIUS + 1;
+        RandomGenerator random = engine.getRandom();
+        for (int attempt = 0; attempt < CHUNKED_SPAWN_ATTEMPTS; attempt++) {
+            int row = boatRow - CHUNKED_SPAWN_RADIUS + random.nextInt(size);
+            int col = boatCol - CHUNKED_SPAWN_RADIUS + random.nextInt(size);
+            // Celula tem de ser agua e nao pode ser adjacente ao barco
+            if (grid.inBounds(row, col) && grid.get(row, col) == '.'
+                    && Math.abs(row - boatRow) + Math.abs(col - boatCol) != 1) {
+                return row * grid.getWidth() + col;
+            }
+        }
+        return -1;
     }
 
     /**
     * Gera um explosivo numa posicao aleatoria segura
     * Chamado a cada movimento do barco quando ha pirata no nivel
+    * @return true se o explosivo foi colocado, false se nao ha espaco livre
      */
-    private void spawnExplosive() {
+    private boolean spawnExplosive() {
         // Obtem posicao aleatoria valida
-        int[] pos = getRandomEmptyPositionExcludingAdjacent();
+        int pos = getRandomEmptyPositionExcludingAdjacent();
+        if (pos < 0) {
+            return false; // Mapa cheio: nao gera explosivo
+        }
         // Coloca 'E' (explosivo) nessa posicao
-        StringBuilder sb = new StringBuilder(grid.get(pos[0]));
-        sb.setCharAt(pos[1], 'E');
-        grid.set(pos[0], sb.toString());
+        setCell(pos / grid.getWidth(), pos % grid.getWidth(), 'E');
+        return true;
     }
 
     /**
@@ -268,9 +431,7 @@ public class Map {
      */
     private void removeExplosive(int row, int col) {
         // Substitui 'E' por '.' (agua vazia)
-        StringBuilder sb = new StringBuilder(grid.get(row));
-        sb.setCharAt(col, '.');
-        grid.set(row, sb.toString());
+        setCell(row, col, '.');
     }
 
     /**
@@ -281,9 +442,45 @@ public class Map {
         int row = boat.getRow();
         int col = boat.getCol();
         // Verifica se esta dentro dos limites e se a celula e 'I' (ilha)
-        if (row >= 0 && row < grid.size() && col >= 0 && col < grid.get(row).length()) {
-            return grid.get(row).charAt(col) == 'I';
+        if (grid.inBounds(row, col)) {
+            return grid.get(row, col) == 'I';
         }
         return false;
     }
+
+    /**
+    * Verifica se um simbolo impede o barco de entrar na celula
+    * @param symbol Simbolo da celula
+    * @return true para 'X' (fora do mapa) e 'R' (rocha)
+     */
+    static boolean blocksBoat(char symbol) {
+        return symbol == 'X' || symbol == 'R';
+    }
+
+    /**
+    * Verifica se o barco pode entrar numa celula sem perder o jogo
+    * @param symbol Simbolo da celula
+    * @return true se nao bloqueia o barco e nao e o pirata
+     */
+    static boolean isSafe(char symbol) {
+        return !blocksBoat(symbol) && symbol != 'P';
+    }
+
+    /**
+    * Liberta os recursos do mapa (ficheiros de um mundo paginado)
+    * Chamado quando o nivel deixa de ser jogado
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (loadedGrid instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) loadedGrid).close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package project;
+import java.awt.*;
+
+/**
+ * Classe MapRenderer - Desenha o mapa num contexto grafico qualquer
+ * Usada tanto pela MapView (desenho por eventos do Swing) como pelo GameLoop
+ * (desenho ativo com BufferStrategy). Calcula o tamanho das celulas, segue o
+ * barco com a camara e desenha apenas as celulas visiveis (mais uma margem).
+ * O barco e desenhado por cima das celulas numa posicao que pode ser fracionaria,
+ * o que permite interpolar o movimento entre dois passos da simulacao.
+ * As celulas vem de um GameSnapshot (imutavel), por isso o desenho nao usa locks.
+ */
+public class MapRenderer {
+
+    // Tamanho minimo de uma celula em pixeis (abaixo disto a camara e usada)
+    private static final int MIN_TILE = 40;
+
+    // Celulas extra desenhadas a volta da zona visivel
+    private static final int MARGIN = 1;
+
+    // Cor da agua
+    private static final Color WATER = new Color(0, 102, 204);
+
+    // Cor da agua por baixo do barco
+    private static final Color BOAT_WATER = new Color(0, 70, 204);
+
+    // Celulas a desenhar
+    private GridView grid;
+
+    // Imagens dos elementos do jogo, ja redimensionadas para o tamanho das celulas
+    private final SpriteAtlas sprites = SpriteAtlas.get();
+
+    // Camara que segue o barco
+    private final Camera camera = new Camera();
+
+    // Tamanho da vista, tamanho das celulas e posicao da grelha na vista
+    private int viewW, viewH, cellW, cellH, originX, originY;
+
+    /**
+    * Muda as celulas desenhadas
+    * @param grid Celulas do snapshot a desenhar (pode ser null)
+     */
+    public void setGrid(GridView grid) {
+        this.grid = grid;
+        layout(viewW, viewH);
+    }
+
+    /**
+    * Obtem as celulas desenhadas
+    * @return Celulas atuais
+     */
+    public GridView getGrid() {
+        return grid;
+    }
+
+    /**
+    * Obtem a camara
+    * @return Camara que segue o barco
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+    * Calcula o tamanho das celulas e a posicao da grelha para um tamanho de vista
+    * Mapas pequenos ocupam a vista toda (centrados); mapas grandes usam a camara
+    * @param width Largura da vista
+    * @param height Altura da vista
+    * @return true se ha celulas para desenhar
+     */
+    public boolean layout(int width, int height) {
+        viewW = width;
+        viewH = height;
+        if (grid == null || grid.getWidth() == 0 || grid.getHeight() == 0) {
+            cellW = cellH = 0;
+            return false;
+        }
+        cellW = Math.max(MIN_TILE, width / grid.getWidth());
+        cellH = Math.max(MIN_TILE, height / grid.getHeight());
+        originX = Math.max(0, (width - cellW * grid.getWidth()) / 2);
+        originY = Math.max(0, (height - cellH * grid.getHeight()) / 2);
+        return true;
+    }
+
+    /**
+    * Verifica se ha celulas para desenhar
+    * @return true se o mapa tem celulas e a vista tem tamanho
+     */
+    public boolean hasCells() {
+        return cellW > 0 && cellH > 0;
+    }
+
+    /**
+    * Define o alvo da camara para que uma posicao (possivelmente fracionaria) fique centrada
+    * @param row Linha a seguir
+    * @param col Coluna a seguir
+     */
+    public void follow(double row, double col) {
+        if (!hasCells()) {
+            return;
+        }
+        camera.follow(row, col, cellW, cellH, viewW, viewH, grid.getWidth() * cellW, grid.getHeight() * cellH);
+    }
+
+    /**
+    * Desenha as celulas visiveis que intersetam uma zona e o barco por cima
+    * @param g Contexto grafico
+    * @param clip Zona a desenhar (coordenadas da vista)
+    * @param boatRow Linha onde desenhar o barco (pode ser fracionaria)
+    * @param boatCol Coluna onde desenhar o barco (pode ser fracionaria)
+     */
+    public void paint(Graphics g, Rectangle clip, double boatRow, double boatCol) {
+        if (!hasCells()) {
+            return;
+        }
+
+        // Apenas as linhas e colunas dentro da zona a desenhar (mais a margem)
+        int worldX = clip.x - originX + camera.getX();
+        int worldY = clip.y - originY + camera.getY();
+        int firstCol = Math.max(0, Math.floorDiv(worldX, cellW) - MARGIN);
+        int lastCol = Math.min(grid.getWidth() - 1, (worldX + clip.width) / cellW + MARGIN);
+        int firstRow = Math.max(0, Math.floorDiv(worldY, cellH) - MARGIN);
+        int lastRow = Math.min(grid.getHeight() - 1, (worldY + clip.height) / cellH + MARGIN);
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                char elem = grid.get(r, c);
+                paintCell(g, screenX(c), screenY(r), elem == 'X' ? Color.GRAY : WATER,
+                    SpriteAtlas.spriteFor(elem));
+            }
+        }
+
+        // Barco por cima das celulas
+        int boatX = (int) Math.round(originX + boatCol * cellW) - camera.getX();
+        int boatY = (int) Math.round(originY + boatRow * cellH) - camera.getY();
+        if (clip.intersects(boatX, boatY, cellW, cellH)) {
+            paintCell(g, boatX, boatY, BOAT_WATER, SpriteAtlas.BOAT);
+        }
+    }
+
+    /**
+    * Desenha uma celula: fundo, imagem (uma copia direta da tira do atlas) e borda preta
+    * @param g Contexto grafico
+    * @param x Coordenada x da celula
+    * @param y Coordenada y da celula
+    * @param background Cor de fundo
+    * @param sprite Indice da imagem, ou -1 para nenhuma
+     */
+    private void paintCell(Graphics g, int x, int y, Color background, int sprite) {
+        g.setColor(background);
+        g.fillRect(x, y, cellW, cellH);
+        if (sprite >= 0) {
+            sprites.draw(g, sprite, x, y, cellW, cellH);
+        }
+        g.setColor(Color.BLACK);
+        g.drawRect(x, y, cellW - 1, cellH - 1);
+    }
+
+    /**
+    * Obtem a largura de cada celula
+    * @return Largura em pixeis
+     */
+    public int getCellWidth() {
+        return cellW;
+    }
+
+    /**
+    * Obtem a altura de cada celula
+    * @return Altura em pixeis
+     */
+    public int getCellHeight() {
+        return cellH;
+    }
+
+    /**
+    * Obtem a coordenada x na vista de uma coluna
+    * @param col Coluna
+    * @return Coordenada x
+     */
+    public int screenX(int col) {
+        return originX + col * cellW - camera.getX();
+    }
+
+    /**
+    * Obtem a coordenada y na vista de uma linha
+    * @param row Linha
+    * @return Coordenada y
+     */
+    public int screenY(int row) {
+        return originY + row * cellH - camera.getY();
+    }
+}
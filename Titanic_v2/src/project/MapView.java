@@ -0,0 +1,131 @@
+package project;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import javax.swing.*;
+
+/**
+ * Classe MapView - Componente que desenha o mapa diretamente
+ * Em vez de criar um JPanel e um JLabel por celula, pinta a grelha
+ * no paintComponent a partir das celulas do ultimo GameSnapshot. Cada GameSnapshot publicado
+ * pela simulacao indica as celulas que mudaram e apenas os retangulos dessas
+ * celulas sao redesenhados, por isso cada jogada custa o numero de celulas
+ * alteradas e nao o tamanho do mapa.
+ *
+ * Se o mapa e grande, a camara segue o barco e so sao desenhadas as celulas
+ * visiveis (ver MapRenderer), por isso o custo depende do tamanho da janela.
+ */
+public class MapView extends JComponent {
+
+    // Intervalo entre passos do deslizamento da camara (aprox. 60 por segundo)
+    private static final int SCROLL_DELAY_MS = 16;
+
+    // Desenha as celulas e segue o barco com a camara
+    private final MapRenderer renderer = new MapRenderer();
+
+    // Tempos de desenho (para o relatorio do Autopilot)
+    private final FrameStats frameStats = new FrameStats();
+
+    // Temporizador do deslizamento suave da camara
+    private final Timer scrollTimer;
+
+    // Ultimo snapshot mostrado (null antes do primeiro)
+    private GameSnapshot shown;
+
+    // Posicao do barco no ultimo snapshot mostrado
+    private int boatRow, boatCol;
+
+    /**
+    * Construtor da MapView
+    * @param snapshot Estado inicial do jogo
+     */
+    public MapView(GameSnapshot snapshot) {
+        setOpaque(true);
+        scrollTimer = new Timer(SCROLL_DELAY_MS, e -> {
+            if (!renderer.getCamera().step()) {
+                ((Timer) e.getSource()).stop();
+            }
+            repaint();
+        });
+        // Ao redimensionar a janela, recalcula as celulas e centra a camara
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                followBoat(true);
+            }
+        });
+        showSnapshot(snapshot);
+    }
+
+    /**
+    * Mostra um novo estado do jogo
+    * Se o nivel mudou redesenha tudo; caso contrario pede para redesenhar
+    * apenas as celulas que mudaram e a camara desliza ate ao barco
+    * @param snapshot Estado publicado pela simulacao
+     */
+    public void showSnapshot(GameSnapshot snapshot) {
+        boatRow = snapshot.getBoatRow();
+        boatCol = snapshot.getBoatCol();
+        boolean levelChanged = shown == null || !snapshot.sameLevel(shown);
+        shown = snapshot;
+        renderer.setGrid(snapshot.getGrid());
+        if (levelChanged) {
+            followBoat(true);
+            repaint();
+            return;
+        }
+        if (!renderer.hasCells()) {
+            return;
+        }
+        int width = snapshot.getGrid().getWidth();
+        for (int i = 0; i < snapshot.getChangedCount(); i++) {
+            int cell = snapshot.getChangedCell(i);
+            repaint(renderer.screenX(cell % width), renderer.screenY(cell / width),
+                renderer.getCellWidth(), renderer.getCellHeight());
+        }
+        followBoat(false);
+    }
+
+    /**
+    * Atualiza o alvo da camara para a posicao do barco
+    * @param snap true para mover a camara logo, false para deslizar
+     */
+    private void followBoat(boolean snap) {
+        if (!renderer.layout(getWidth(), getHeight())) {
+            return;
+        }
+        renderer.follow(boatRow, boatCol);
+        if (snap) {
+            renderer.getCamera().snap();
+        } else if (!scrollTimer.isRunning()) {
+            scrollTimer.start();
+        }
+    }
+
+    /**
+    * Desenha as celulas visiveis que intersetam a zona a redesenhar
+    * @param g Contexto grafico
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (renderer.layout(getWidth(), getHeight())) {
+            renderer.paint(g, clip, boatRow, boatCol);
+        }
+        frameStats.record(System.nanoTime() - start);
+    }
+
+    /**
+    * Obtem os tempos de desenho registados
+    * @return Estatisticas dos frames
+     */
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+}
@@ -0,0 +1,62 @@
+package project;
+
+/**
+ * Classe OverlayGrid - Grelha copy-on-write sobre uma grelha partilhada
+ * As leituras vao a grelha base (um nivel carregado uma unica vez e partilhado
+ * por muitas sessoes); as escritas ficam numa tabela propria com as celulas
+ * alteradas. Assim cada sessao so guarda as celulas que mudaram (barco,
+ * sereias apanhadas, explosivos) em vez de uma copia inteira do nivel.
+ *
+ * A grelha base nunca e alterada e pode ser lida por varias threads ao mesmo tempo.
+ */
+public class OverlayGrid implements WritableGrid {
+
+    // Valor guardado na tabela quando a celula nao foi alterada
+    private static final int UNCHANGED = -1;
+
+    // Grelha partilhada (so lida)
+    private final GridView base;
+
+    // Celulas alteradas por esta sessao: posicao empacotada -> simbolo
+    private final IntIntHashMap changes;
+
+    /**
+    * Construtor da OverlayGrid
+    * @param base Grelha partilhada que nunca e alterada
+     */
+    public OverlayGrid(GridView base) {
+        this.base = base;
+        this.changes = new IntIntHashMap(16);
+    }
+
+    /**
+    * Obtem o numero de celulas alteradas guardadas nesta camada
+    * @return Numero de celulas com simbolo proprio
+     */
+    public int changedCells() {
+        return changes.size();
+    }
+
+    @Override
+    public int getWidth() {
+        return base.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return base.getHeight();
+    }
+
+    @Override
+    public char get(int row, int col) {
+        int symbol = changes.get(row * base.getWidth() + col, UNCHANGED);
+        return symbol == UNCHANGED ? base.get(row, col) : (char) symbol;
+    }
+
+    @Override
+    public void set(int row, int col, char symbol) {
+        // Uma celula que volta ao simbolo original continua na tabela:
+        // o numero de entradas fica limitado pelas celulas que a sessao tocou
+        changes.put(row * base.getWidth() + col, symbol);
+    }
+}
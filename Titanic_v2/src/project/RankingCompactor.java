@@ -0,0 +1,267 @@
+package project;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe RankingCompactor - Compacta o ranking.txt em segundo plano
+ * O ranking.txt so cresce (uma linha por jogo), mas so interessa a melhor
+ * pontuacao de cada jogador. A compactacao:
+ * 1. pede ao ScoreWriter que troque o ficheiro: o registo atual passa a
+ *    ranking.txt.compacting e as pontuacoes novas vao para um ranking.txt vazio
+ *    (quem submete pontuacoes nunca espera); a troca e tudo ou nada, por isso se
+ *    falhar (ou demorar demais) o registo continua inteiro no ranking.txt;
+ * 2. junta o snapshot anterior com esse registo, fica com a melhor pontuacao de
+ *    cada jogador e escreve-as ordenadas num ficheiro temporario, com fsync;
+ * 3. troca o snapshot (ranking.txt.snapshot) pelo temporario com um move atomico
+ *    e apaga o registo compactado, com o lock do RankingService para que nenhuma
+ *    leitura veja os ficheiros a meio da troca.
+ * Se a aplicacao for abaixo a meio, o registo .compacting continua a ser lido pelo
+ * RankingService e e compactado na vez seguinte; como so conta a melhor pontuacao,
+ * ler uma linha duas vezes nao muda o ranking.
+ *
+ * A compactacao corre quando o ranking.txt fica maior do que o snapshot, por isso
+ * o espaco em disco e o tempo de carregamento crescem com o numero de jogadores
+ * e nao com o numero de jogos.
+ */
+public class RankingCompactor {
+
+    // Tamanho minimo do ranking.txt para valer a pena compactar (bytes)
+    public static final long MIN_TAIL_BYTES = 64 * 1024;
+
+    // Intervalo entre verificacoes da compactacao em segundo plano (segundos)
+    public static final long CHECK_INTERVAL_SECONDS = 30;
+
+    // Compactador do ranking.txt partilhado (criado no primeiro uso)
+    private static RankingCompactor shared;
+
+    // Ficheiro onde as pontuacoes novas sao acrescentadas
+    private final Path file;
+
+    // Snapshot compactado, registo a ser compactado e snapshot a ser escrito
+    private final Path snapshot;
+    private final Path compacting;
+    private final Path temporary;
+
+    // Escritor que acrescenta pontuacoes ao ficheiro (faz a troca do ficheiro)
+    private final ScoreWriter writer;
+
+    // Indice que le os ficheiros, ou null
+    private final RankingService ranking;
+
+    // Thread que verifica periodicamente se e preciso compactar
+    private ScheduledExecutorService scheduler;
+
+    /**
+    * Obtem o nome do snapshot compactado de um ficheiro de ranking
+    * @param file Ficheiro de ranking
+    * @return Ficheiro com a melhor pontuacao de cada jogador
+     */
+    static Path snapshotOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".snapshot");
+    }
+
+    /**
+    * Obtem o nome do registo a ser compactado de um ficheiro de ranking
+    * @param file Ficheiro de ranking
+    * @return Registo retirado do ficheiro e ainda nao juntado ao snapshot
+     */
+    static Path compactingOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compacting");
+    }
+
+    /**
+    * Inicia a compactacao em segundo plano do ranking.txt partilhado
+    * (do ScoreWriter e do RankingService partilhados)
+    * @return Compactador do ranking.txt
+     */
+    public static synchronized RankingCompactor startShared() {
+        if (shared == null) {
+            shared = new RankingCompactor(Paths.get(RankingService.RANKING_FILE),
+                ScoreWriter.shared(), RankingService.shared());
+            shared.start(CHECK_INTERVAL_SECONDS);
+        }
+        return shared;
+    }
+
+    /**
+    * Construtor do RankingCompactor
+    * @param file Ficheiro de ranking
+    * @param writer Escritor que acrescenta pontuacoes a esse ficheiro (nesta JVM)
+    * @param ranking Indice que le esse ficheiro, ou null
+     */
+    public RankingCompactor(Path file, ScoreWriter writer, RankingService ranking) {
+        this.file = file;
+        this.snapshot = snapshotOf(file);
+        this.compacting = compactingOf(file);
+        this.temporary = file.resolveSibling(file.getFileName() + ".snapshot.tmp");
+        this.writer = writer;
+        this.ranking = ranking;
+    }
+
+    /**
+    * Verifica periodicamente, numa thread de fundo, se e preciso compactar
+    * @param intervalSeconds Intervalo entre verificacoes
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ranking-compactor");
+            t.setDaemon(true); // Nao impede a aplicacao de terminar
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (isDue()) {
+                    compact();
+                }
+            } catch (RuntimeException e) {
+                // Um erro nao pode cancelar as verificacoes seguintes
+                e.printStackTrace();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+    * Para a compactacao em segundo plano (uma compactacao a decorrer termina)
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+    * Verifica se vale a pena compactar: o ficheiro ja e maior do que o snapshot
+    * (e do que MIN_TAIL_BYTES), ou ficou um registo por compactar
+    * @return true se a compactacao deve correr
+     */
+    public boolean isDue() {
+        try {
+            if (Files.exists(compacting)) {
+                return true;
+            }
+            if (!Files.exists(file)) {
+                return false;
+            }
+            long tail = Files.size(file);
+            long compacted = Files.exists(snapshot) ? Files.size(snapshot) : 0;
+            return tail >= MIN_TAIL_BYTES && tail > compacted;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+    * Compacta o ficheiro: junta-o ao snapshot e recomeca-o vazio
+    * @return Numero de jogadores no snapshot novo, ou -1 se nao foi compactado
+     */
+    public synchronized int compact() {
+        try {
+            // Um registo deixado por uma compactacao interrompida e compactado primeiro
+            if (!Files.exists(compacting)) {
+                if (!Files.exists(file) || Files.size(file) == 0) {
+                    return -1;
+                }
+                // false garante que nada foi trocado (um pedido atrasado e cancelado pelo
+                // ScoreWriter), por isso nao pode aparecer um .compacting a meio numa vez seguinte
+                if (!writer.rotate(compacting)) {
+                    return -1;
+                }
+            }
+
+            // Melhor pontuacao de cada jogador no snapshot anterior e no registo
+            RankingService merged = new RankingService(file, 1);
+            merged.loadFile(snapshot);
+            merged.loadFile(compacting);
+            Score[] scores = merged.all();
+            Arrays.sort(scores, (a, b) -> a.points != b.points
+                ? Integer.compare(b.points, a.points) : a.name.compareTo(b.name));
+            writeSnapshot(scores);
+
+            // Troca os ficheiros sem que o indice os leia a meio
+            if (ranking != null) {
+                synchronized (ranking) {
+                    swap();
+                    ranking.invalidate();
+                }
+            } else {
+                swap();
+            }
+            return scores.length;
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar ranking: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+    * Escreve o snapshot novo no ficheiro temporario e forca-o para o disco
+    * @param scores Pontuacoes ordenadas (uma por jogador)
+    * @throws IOException Se a escrita falhar
+     */
+    private void writeSnapshot(Score[] scores) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+            for (Score score : scores) {
+                out.write(score.name);
+                out.write(';');
+                out.write(Integer.toString(score.points));
+                out.write('\n');
+            }
+            out.flush();
+            // O snapshot tem de estar no disco antes de o registo compactado ser apagado
+            channel.force(true);
+        }
+    }
+
+    /**
+    * Poe o snapshot novo no lugar do anterior e apaga o registo compactado
+    * @throws IOException Se a troca falhar (o registo fica para a vez seguinte)
+     */
+    private void swap() throws IOException {
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(compacting);
+    }
+
+    /**
+    * Compacta um ficheiro de ranking uma vez
+    * Nao deve correr ao mesmo tempo que um jogo ou servidor que escreva no mesmo ficheiro
+    * Uso: java project.RankingCompactor [ficheiro]
+    * @param args Argumentos da linha de comandos
+     */
+    public static void main(String[] args) {
+        Path path = Paths.get(args.length > 0 ? args[0] : RankingService.RANKING_FILE);
+        try (ScoreWriter writer = new ScoreWriter(path, SyncPolicy.BATCH)) {
+            long before = Files.size(path);
+            long start = System.nanoTime();
+            int players = new RankingCompactor(path, writer, null).compact();
+            if (players < 0) {
+                System.out.println("Nada a compactar");
+                return;
+            }
+            System.out.printf("%d bytes compactados em %d jogadores (%d bytes) em %.0f ms%n",
+                before, players, Files.size(snapshotOf(path)), (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar ranking: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
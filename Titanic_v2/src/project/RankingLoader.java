@@ -0,0 +1,432 @@
+package project;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Classe RankingLoader - Leitura paralela de ficheiros de ranking grandes
+ * O ficheiro e mapeado em memoria e dividido em segmentos que comecam e acabam
+ * em fins de linha; cada segmento e interpretado numa thread do ForkJoinPool
+ * comum (parallel stream), byte a byte, sem String.split nem Integer.parseInt.
+ * Cada thread junta a melhor pontuacao de cada nome numa tabela propria indexada
+ * pelos bytes do nome, por isso so e criada uma String por nome distinto e nao
+ * por linha. No fim as tabelas sao juntadas numa so.
+ *
+ * Linhas mal formadas sao contadas e ignoradas. Uma ultima linha sem '\n'
+ * (ainda a ser escrita) nao e lida. O RankingService usa este carregamento
+ * quando tem de ler de uma vez mais de PARALLEL_THRESHOLD bytes.
+ */
+public class RankingLoader {
+
+    // Tamanho a partir do qual vale a pena ler em paralelo (bytes)
+    public static final long PARALLEL_THRESHOLD = 4L << 20;
+
+    // Resultado de parseRecord para uma linha vazia (nao conta como linha)
+    static final long BLANK = Long.MIN_VALUE + 1;
+
+    // Resultado de parseRecord para uma linha mal formada
+    static final long MALFORMED = Long.MIN_VALUE;
+
+    // Tamanho maximo de um segmento (cada segmento e mapeado de uma vez)
+    private static final long MAX_SEGMENT = 256L << 20;
+
+    // Tamanho do bloco copiado do mapeamento de cada vez
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+    * Classe Result - Melhor pontuacao de cada nome lida de uma parte do ficheiro
+     */
+    static final class Result {
+
+        // Nomes e melhores pontuacoes (as primeiras count posicoes)
+        final String[] names;
+        final int[] points;
+        final int count;
+
+        // Linhas lidas (sem as vazias) e linhas mal formadas
+        final long lines;
+        final long malformed;
+
+        // Posicao a seguir a ultima linha completa lida
+        final long end;
+
+        /**
+        * Construtor do Result
+        * @param names Nomes
+        * @param points Melhores pontuacoes
+        * @param count Numero de nomes
+        * @param lines Linhas lidas
+        * @param malformed Linhas mal formadas
+        * @param end Posicao a seguir a ultima linha completa
+         */
+        Result(String[] names, int[] points, int count, long lines, long malformed, long end) {
+            this.names = names;
+            this.points = points;
+            this.count = count;
+            this.lines = lines;
+            this.malformed = malformed;
+            this.end = end;
+        }
+    }
+
+    /**
+    * Interpreta uma linha Nome;Pontos (tambem usado na leitura incremental)
+    * Tem de ter exatamente um ';' e os pontos sao um sinal opcional e digitos
+    * que cabem num int; um '\r' no fim e ignorado
+    * @param line Bytes da linha (sem o '\n')
+    * @param length Numero de bytes da linha
+    * @return (pontos << 32) | posicao do ';', BLANK se a linha estiver vazia
+    *         ou MALFORMED se estiver mal formada
+     */
+    static long parseRecord(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        int start = 0;
+        while (start < length && line[start] == ' ') {
+            start++;
+        }
+        if (start == length) {
+            return BLANK;
+        }
+        int separator = -1;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ';') {
+                if (separator >= 0) {
+                    return MALFORMED; // Mais de um ';'
+                }
+                separator = i;
+            }
+        }
+        if (separator < 0) {
+            return MALFORMED;
+        }
+        int i = separator + 1;
+        boolean negative = i < length && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == length) {
+            return MALFORMED;
+        }
+        long points = 0;
+        for (; i < length; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return MALFORMED;
+            }
+            points = points * 10 + digit;
+            if (points > Integer.MAX_VALUE) {
+                return MALFORMED; // Nao cabe num int
+            }
+        }
+        return (negative ? -points : points) << 32 | separator;
+    }
+
+    /**
+    * Le em paralelo as linhas completas de uma parte de um ficheiro
+    * @param channel Ficheiro aberto para leitura
+    * @param from Posicao do inicio de uma linha
+    * @param to Fim da parte a ler (normalmente o tamanho do ficheiro)
+    * @return Melhor pontuacao de cada nome, contagens e fim da ultima linha completa
+    * @throws IOException Se a leitura falhar
+     */
+    static Result load(FileChannel channel, long from, long to) throws IOException {
+        long[] bounds = segmentBounds(channel, from, to);
+        int segments = bounds.length - 1;
+        NameTable[] tables;
+        try {
+            tables = IntStream.range(0, segments).parallel()
+                .mapToObj(i -> parseSegment(channel, bounds[i], bounds[i + 1]))
+                .toArray(NameTable[]::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Junta as tabelas das threads (ainda pelos bytes dos nomes)
+        NameTable merged = tables.length > 0 ? tables[0] : new NameTable(16);
+        long lines = merged.lines;
+        long malformed = merged.malformed;
+        for (int t = 1; t < tables.length; t++) {
+            NameTable table = tables[t];
+            lines += table.lines;
+            malformed += table.malformed;
+            for (int slot = 0; slot < table.keys.length; slot++) {
+                byte[] key = table.keys[slot];
+                if (key != null) {
+                    merged.merge(key, key.length, table.hashes[slot], table.values[slot]);
+                }
+            }
+        }
+
+        // So agora cria uma String por nome distinto
+        String[] names = new String[merged.size];
+        int[] points = new int[merged.size];
+        int count = 0;
+        for (int slot = 0; slot < merged.keys.length; slot++) {
+            byte[] key = merged.keys[slot];
+            if (key != null) {
+                names[count] = new String(key, StandardCharsets.UTF_8);
+                points[count++] = merged.values[slot];
+            }
+        }
+        long end = segments > 0 ? bounds[segments] : from;
+        return new Result(names, points, count, lines, malformed, end);
+    }
+
+    /**
+    * Divide uma parte do ficheiro em segmentos alinhados com fins de linha
+    * Um segmento por thread (ou mais, se passarem de MAX_SEGMENT); a ultima
+    * fronteira e o fim da ultima linha completa
+    * @param channel Ficheiro aberto
+    * @param from Inicio da parte
+    * @param to Fim da parte
+    * @return Fronteiras dos segmentos (o segmento i vai de bounds[i] a bounds[i + 1])
+    * @throws IOException Se a leitura falhar
+     */
+    private static long[] segmentBounds(FileChannel channel, long from, long to) throws IOException {
+        long length = to - from;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int segments = (int) Math.max(Math.min(threads, length / CHUNK_SIZE + 1), (length + MAX_SEGMENT - 1) / MAX_SEGMENT);
+        long[] bounds = new long[segments + 1];
+        int count = 0;
+        bounds[count++] = from;
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        for (int s = 1; s <= segments; s++) {
+            long nominal = from + length / segments * s;
+            long boundary = s == segments ? lastNewline(channel, bounds[count - 1], to)
+                                          : nextNewline(channel, nominal, to, probe);
+            // Fronteiras que caem dentro de um segmento ja delimitado sao descartadas
+            if (boundary > bounds[count - 1]) {
+                bounds[count++] = boundary;
+            }
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+    * Procura o primeiro fim de linha a partir de uma posicao
+    * @param channel Ficheiro aberto
+    * @param position Posicao onde comeca a procura
+    * @param to Fim da parte a ler
+    * @param probe Buffer de leitura
+    * @return Posicao a seguir ao '\n', ou -1 se nao houver mais fins de linha
+    * @throws IOException Se a leitura falhar
+     */
+    private static long nextNewline(FileChannel channel, long position, long to, ByteBuffer probe) throws IOException {
+        while (position < to) {
+            probe.clear();
+            probe.limit((int) Math.min(probe.capacity(), to - position));
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    /**
+    * Procura o fim da ultima linha completa antes de uma posicao
+    * @param channel Ficheiro aberto
+    * @param from Inicio do ultimo segmento (nunca se recua para tras dele)
+    * @param to Fim da parte a ler
+    * @return Posicao a seguir ao ultimo '\n', ou from se nao houver nenhum
+    * @throws IOException Se a leitura falhar
+     */
+    private static long lastNewline(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long position = to;
+        while (position > from) {
+            int size = (int) Math.min(probe.capacity(), position - from);
+            probe.clear();
+            probe.limit(size);
+            int read = channel.read(probe, position - size);
+            if (read < size) {
+                throw new IOException("Ficheiro encolheu durante a leitura");
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return position - size + i + 1;
+                }
+            }
+            position -= size;
+        }
+        return from;
+    }
+
+    /**
+    * Interpreta um segmento (numa thread do ForkJoinPool)
+    * @param channel Ficheiro aberto
+    * @param start Inicio do segmento (inicio de uma linha)
+    * @param end Fim do segmento (a seguir a um '\n')
+    * @return Tabela com a melhor pontuacao de cada nome do segmento
+     */
+    private static NameTable parseSegment(FileChannel channel, long start, long end) {
+        NameTable table = new NameTable(1024);
+        MappedByteBuffer map;
+        try {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] chunk = new byte[CHUNK_SIZE];
+        byte[] line = new byte[128];
+        int length = 0;
+        while (map.hasRemaining()) {
+            int read = Math.min(chunk.length, map.remaining());
+            map.get(chunk, 0, read);
+            for (int i = 0; i < read; i++) {
+                byte b = chunk[i];
+                if (b != '\n') {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                    continue;
+                }
+                long record = parseRecord(line, length);
+                length = 0;
+                if (record == BLANK) {
+                    continue;
+                }
+                table.lines++;
+                if (record == MALFORMED) {
+                    table.malformed++;
+                    continue;
+                }
+                int separator = (int) record;
+                table.merge(line, separator, hash(line, separator), (int) (record >> 32));
+            }
+        }
+        return table;
+    }
+
+    /**
+    * Calcula o hash dos bytes de um nome (FNV-1a)
+    * @param bytes Bytes
+    * @param length Numero de bytes a usar
+    * @return Hash dos bytes
+     */
+    private static int hash(byte[] bytes, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h;
+    }
+
+    /**
+    * Classe NameTable - Melhor pontuacao por nome, indexada pelos bytes do nome
+    * Enderecamento aberto com sondagem linear; os bytes de um nome so sao
+    * copiados quando o nome aparece pela primeira vez
+     */
+    private static final class NameTable {
+
+        // Bytes de cada nome (null nas entradas livres), o seu hash e a melhor pontuacao
+        byte[][] keys;
+        int[] hashes;
+        int[] values;
+
+        // Numero de nomes
+        int size;
+
+        // Linhas lidas (sem as vazias) e linhas mal formadas
+        long lines;
+        long malformed;
+
+        /**
+        * Construtor da NameTable
+        * @param capacity Capacidade inicial (potencia de 2)
+         */
+        NameTable(int capacity) {
+            keys = new byte[capacity][];
+            hashes = new int[capacity];
+            values = new int[capacity];
+        }
+
+        /**
+        * Guarda uma pontuacao se for a melhor do nome
+        * @param name Bytes do nome (nas primeiras length posicoes)
+        * @param length Numero de bytes do nome
+        * @param hash Hash do nome
+        * @param points Pontuacao
+         */
+        void merge(byte[] name, int length, int hash, int points) {
+            int mask = keys.length - 1;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != null) {
+                byte[] key = keys[slot];
+                if (hashes[slot] == hash && Arrays.equals(key, 0, key.length, name, 0, length)) {
+                    if (points > values[slot]) {
+                        values[slot] = points;
+                    }
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = Arrays.copyOf(name, length);
+            hashes[slot] = hash;
+            values[slot] = points;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        /**
+        * Duplica a capacidade da tabela e volta a inserir todas as entradas
+         */
+        private void resize() {
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            int[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[keys.length];
+            values = new int[keys.length];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = (oldHashes[i] ^ oldHashes[i] >>> 16) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    hashes[slot] = oldHashes[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+    * Le um ficheiro de ranking em paralelo e mostra o tempo e as contagens
+    * Uso: java project.RankingLoader [ficheiro]
+    * @param args Argumentos da linha de comandos
+     */
+    public static void main(String[] args) {
+        Path path = Paths.get(args.length > 0 ? args[0] : RankingService.RANKING_FILE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            Result result = load(channel, 0, channel.size());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d linhas (%d mal formadas), %d jogadores em %.2f s (%.0f MB/s)%n",
+                result.lines, result.malformed, result.count, seconds, result.end / 1e6 / seconds);
+        } catch (IOException e) {
+            System.err.println("Erro ao ler ranking: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
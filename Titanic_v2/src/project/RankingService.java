@@ -0,0 +1,410 @@
+package project;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Classe RankingService - Indice em memoria do ficheiro ranking.txt
+ * Guarda a melhor pontuacao de cada jogador e as TOP_K melhores de todas,
+ * ordenadas. O ficheiro e lido por completo uma unica vez; depois disso
+ * refresh() le apenas os bytes acrescentados desde o ultimo offset conhecido,
+ * por isso abrir a tabela de pontuacoes custa O(K) e nao O(linhas do ficheiro).
+ *
+ * As linhas tem o formato Nome;Pontos e sao lidas diretamente dos bytes, sem
+ * Scanner nem split. Uma ultima linha ainda sem '\n' (a ser escrita) fica para a
+ * proxima leitura. Se o ficheiro for trocado (compactacao) ou ficar mais pequeno,
+ * o indice e reconstruido a partir do snapshot compactado (uma linha por jogador)
+ * e do ficheiro novo, por isso o custo cresce com os jogadores e nao com os jogos.
+ *
+ * Todos os metodos sao sincronizados: a GUI e as sessoes do GameServer podem
+ * usar o mesmo indice ao mesmo tempo.
+ */
+public class RankingService {
+
+    // Ficheiro onde as pontuacoes sao guardadas
+    public static final String RANKING_FILE = "ranking.txt";
+
+    // Numero de melhores pontuacoes mantidas ordenadas por omissao
+    public static final int TOP_K = 100;
+
+    // Tamanho do buffer de leitura do ficheiro
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Indice partilhado do ranking.txt (criado no primeiro uso)
+    private static RankingService shared;
+
+    // Ficheiro indexado
+    private final Path file;
+
+    // Melhor pontuacao de cada jogador
+    private final HashMap<String, Integer> best = new HashMap<>();
+
+    // Melhores pontuacoes (uma por jogador), da maior para a menor
+    private final String[] topNames;
+    private final int[] topPoints;
+    private int topCount;
+
+    // Bytes do ficheiro atual ja indexados (so linhas completas)
+    private long offset;
+
+    // Identidade do ficheiro atual quando foi indexado (muda quando e trocado)
+    private Object tailKey;
+
+    // Indica se o snapshot e o registo a ser compactado ja foram lidos
+    private boolean loaded;
+
+    // Numero de linhas lidas e de linhas ignoradas por estarem mal formadas
+    private long lines;
+    private long malformedLines;
+
+    // Linha a ser montada durante a leitura (reutilizada)
+    private byte[] line = new byte[128];
+    private int lineLength;
+
+    /**
+    * Obtem o indice partilhado do ficheiro ranking.txt
+    * @return Indice do ranking (atualizado ate a ultima chamada a refresh)
+     */
+    public static synchronized RankingService shared() {
+        if (shared == null) {
+            shared = new RankingService(Paths.get(RANKING_FILE), TOP_K);
+        }
+        return shared;
+    }
+
+    /**
+    * Construtor do RankingService (o ficheiro so e lido no primeiro refresh)
+    * @param file Ficheiro com linhas Nome;Pontos
+    * @param topK Numero de melhores pontuacoes mantidas ordenadas
+     */
+    public RankingService(Path file, int topK) {
+        this.file = file;
+        this.topNames = new String[topK];
+        this.topPoints = new int[topK];
+    }
+
+    /**
+    * Le as linhas acrescentadas ao ficheiro desde a ultima leitura
+    * Na primeira vez, ou se o ficheiro foi trocado (compactacao) ou encolheu,
+    * volta a indexar tudo: o snapshot compactado, o registo a ser compactado
+    * (se existir) e o ficheiro atual
+    * @return Numero de linhas novas lidas
+     */
+    public synchronized int refresh() {
+        long before = lines;
+        try {
+            // A identidade e lida antes de abrir: se o ficheiro for trocado entre as duas
+            // operacoes, a proxima chamada ve uma identidade diferente e indexa de novo
+            Object key = fileKey(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (!loaded || size < offset || (key != null && !key.equals(tailKey))) {
+                    reload();
+                    tailKey = key;
+                }
+                offset = read(channel, offset, size);
+            }
+        } catch (NoSuchFileException e) {
+            // Ainda nao ha pontuacoes novas (ou o ficheiro esta a ser trocado)
+            try {
+                if (!loaded || offset > 0 || tailKey != null) {
+                    reload();
+                    tailKey = null;
+                }
+            } catch (IOException e2) {
+                System.err.println("Erro ao ler ranking: " + e2.getMessage());
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler ranking: " + e.getMessage());
+        }
+        return (int) (lines - before);
+    }
+
+    /**
+    * Obriga a proxima chamada a refresh() a indexar tudo de novo
+    * Usado pelo RankingCompactor depois de trocar os ficheiros (com o lock deste indice)
+     */
+    synchronized void invalidate() {
+        loaded = false;
+    }
+
+    /**
+    * Esquece o indice e le o snapshot compactado e o registo a ser compactado
+    * @throws IOException Se algum ficheiro existir mas nao puder ser lido
+     */
+    private void reload() throws IOException {
+        clear();
+        loadFile(RankingCompactor.snapshotOf(file));
+        loadFile(RankingCompactor.compactingOf(file));
+        loaded = true;
+    }
+
+    /**
+    * Le um ficheiro inteiro para o indice (sem mexer no offset do ficheiro atual)
+    * @param path Ficheiro com linhas Nome;Pontos (ignorado se nao existir)
+    * @throws IOException Se o ficheiro existir mas nao puder ser lido
+     */
+    void loadFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            // Nada a ler
+        }
+    }
+
+    /**
+    * Le e indexa as linhas completas de um ficheiro entre duas posicoes
+    * @param channel Ficheiro aberto
+    * @param from Posicao do inicio de uma linha
+    * @param size Tamanho do ficheiro
+    * @return Posicao a seguir a ultima linha completa lida
+    * @throws IOException Se a leitura falhar
+     */
+    private long read(FileChannel channel, long from, long size) throws IOException {
+        if (size - from >= RankingLoader.PARALLEL_THRESHOLD) {
+            // Muitos bytes de uma vez (primeira leitura de um ficheiro grande): le em paralelo
+            RankingLoader.Result result = RankingLoader.load(channel, from, size);
+            for (int i = 0; i < result.count; i++) {
+                record(result.names[i], result.points[i]);
+            }
+            lines += result.lines;
+            malformedLines += result.malformed;
+            return result.end;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long end = from;
+        long position = from;
+        lineLength = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    parseLine();
+                    lineLength = 0;
+                    // So avanca ate ao fim da ultima linha completa
+                    end = position + i + 1;
+                } else {
+                    append(b);
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+    * Obtem a identidade de um ficheiro no sistema de ficheiros (no Linux, o inode)
+    * @param path Ficheiro
+    * @return Identidade, ou null se o sistema nao a fornecer
+    * @throws IOException Se o ficheiro nao existir
+     */
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+    * Esquece tudo o que foi indexado
+     */
+    private void clear() {
+        best.clear();
+        Arrays.fill(topNames, null);
+        topCount = 0;
+        offset = 0;
+        lines = 0;
+        malformedLines = 0;
+        loaded = false;
+    }
+
+    /**
+    * Acrescenta um byte a linha atual
+    * @param b Byte lido
+     */
+    private void append(byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+    }
+
+    /**
+    * Interpreta a linha atual (Nome;Pontos) e atualiza o indice
+    * Linhas vazias sao ignoradas; linhas sem exatamente um ';' ou com pontos
+    * invalidos sao contadas como mal formadas
+     */
+    private void parseLine() {
+        long record = RankingLoader.parseRecord(line, lineLength);
+        if (record == RankingLoader.BLANK) {
+            return;
+        }
+        lines++;
+        if (record == RankingLoader.MALFORMED) {
+            malformedLines++;
+            return;
+        }
+        int separator = (int) record;
+        record(new String(line, 0, separator, StandardCharsets.UTF_8), (int) (record >> 32));
+    }
+
+    /**
+    * Regista uma pontuacao no indice (so conta se for a melhor do jogador)
+    * @param name Nome do jogador
+    * @param points Pontuacao
+     */
+    private void record(String name, int points) {
+        Integer previous = best.get(name);
+        if (previous != null && previous >= points) {
+            return;
+        }
+        best.put(name, points);
+        // Quem nao esta no top tem sempre pontuacao menor ou igual a ultima do top,
+        // por isso basta comparar com ela (ou retirar o jogador antes de o reinserir)
+        if (previous != null) {
+            for (int i = 0; i < topCount; i++) {
+                if (topNames[i].equals(name)) {
+                    System.arraycopy(topNames, i + 1, topNames, i, topCount - i - 1);
+                    System.arraycopy(topPoints, i + 1, topPoints, i, topCount - i - 1);
+                    topNames[--topCount] = null;
+                    break;
+                }
+            }
+        }
+        if (topCount == topNames.length) {
+            if (points <= topPoints[topCount - 1]) {
+                return;
+            }
+            topCount--; // Sai a pior pontuacao do top
+        }
+        int i = topCount++;
+        while (i > 0 && topPoints[i - 1] < points) {
+            topNames[i] = topNames[i - 1];
+            topPoints[i] = topPoints[i - 1];
+            i--;
+        }
+        topNames[i] = name;
+        topPoints[i] = points;
+    }
+
+    /**
+    * Obtem as melhores pontuacoes (uma por jogador), da maior para a menor
+    * Nao le o ficheiro: chamar refresh() antes para incluir as pontuacoes novas
+    * @param k Numero maximo de pontuacoes (limitado ao topK do indice)
+    * @return Ate k pontuacoes
+     */
+    public synchronized Score[] top(int k) {
+        int count = Math.min(k, topCount);
+        Score[] scores = new Score[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = new Score(topNames[i], topPoints[i]);
+        }
+        return scores;
+    }
+
+    /**
+    * Obtem a melhor pontuacao de todos os jogadores (sem ordem)
+    * @return Uma pontuacao por jogador
+     */
+    synchronized Score[] all() {
+        Score[] scores = new Score[best.size()];
+        int i = 0;
+        for (java.util.Map.Entry<String, Integer> entry : best.entrySet()) {
+            scores[i++] = new Score(entry.getKey(), entry.getValue());
+        }
+        return scores;
+    }
+
+    /**
+    * Passa a melhor pontuacao de cada jogador a uma acao (sem ordem e sem criar objetos)
+    * A acao corre com o lock do indice e nao deve chamar outros metodos dele
+    * @param action Acao chamada com o nome e a pontuacao de cada jogador
+     */
+    public synchronized void forEachBest(ObjIntConsumer<String> action) {
+        for (java.util.Map.Entry<String, Integer> entry : best.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+    * Obtem a melhor pontuacao de um jogador
+    * @param name Nome do jogador
+    * @return Melhor pontuacao, ou Integer.MIN_VALUE se o jogador nao tiver pontuacoes
+     */
+    public synchronized int best(String name) {
+        Integer points = best.get(name);
+        return points == null ? Integer.MIN_VALUE : points;
+    }
+
+    /**
+    * Obtem o numero de jogadores com pontuacao
+    * @return Numero de jogadores
+     */
+    public synchronized int players() {
+        return best.size();
+    }
+
+    /**
+    * Obtem o numero de linhas lidas (sem contar linhas vazias)
+    * @return Linhas lidas desde o inicio do ficheiro
+     */
+    public synchronized long getLines() {
+        return lines;
+    }
+
+    /**
+    * Obtem o numero de linhas ignoradas por estarem mal formadas
+    * @return Linhas mal formadas
+     */
+    public synchronized long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+    * Obtem o offset ate onde o ficheiro ja foi indexado
+    * @return Bytes lidos (so linhas completas)
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+    * Mostra as melhores pontuacoes do ranking.txt e o tempo de leitura
+    * Uso: java project.RankingService [ficheiro] [k]
+    * @param args Argumentos da linha de comandos
+     */
+    public static void main(String[] args) {
+        Path path = Paths.get(args.length > 0 ? args[0] : RANKING_FILE);
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (!Files.exists(path)) {
+            System.err.println("Ficheiro nao encontrado: " + path);
+            System.exit(1);
+        }
+        RankingService ranking = new RankingService(path, Math.max(k, TOP_K));
+        long start = System.nanoTime();
+        ranking.refresh();
+        long loaded = System.nanoTime();
+        ranking.refresh();
+        Score[] top = ranking.top(k);
+        long reopened = System.nanoTime();
+        for (Score score : top) {
+            System.out.println(score.name + ";" + score.points);
+        }
+        System.out.printf("%d linhas (%d mal formadas), %d jogadores: leitura %.1f ms, nova consulta %.3f ms%n",
+            ranking.getLines(), ranking.getMalformedLines(), ranking.players(),
+            (loaded - start) / 1e6, (reopened - loaded) / 1e6);
+    }
+}
@@ -0,0 +1,238 @@
+package project;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Classe Replay - Gravacao compacta de um jogo
+ * Guarda tudo o que e preciso para repetir o jogo exatamente: a semente do
+ * gerador aleatorio, o nome do jogador, a lista de niveis e as jogadas.
+ * Guarda tambem o resultado final, para verificar a pontuacao ao repetir.
+ *
+ * Formato do ficheiro (little-endian):
+ * - magic "TTNR" e versao (4 bytes cada)
+ * - semente (8 bytes)
+ * - nome do jogador e caminhos dos niveis (comprimento em varint + UTF-8)
+ * - estado final (1 byte) e vidas finais (4 bytes)
+ * - numero de jogadas (varint) e jogadas com 2 bits cada (4 por byte)
+ * - CRC32 de tudo o que esta antes (4 bytes)
+ */
+public final class Replay {
+
+    // Identifica um ficheiro de replay ("TTNR" em little-endian)
+    private static final int MAGIC = 0x524E5454;
+
+    // Versao do formato
+    private static final int VERSION = 1;
+
+    // Direcoes pela ordem do codigo de 2 bits (evita copiar values() em cada leitura)
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Semente do gerador aleatorio do jogo
+    private final long seed;
+
+    // Nome do jogador
+    private final String playerName;
+
+    // Caminhos dos ficheiros de niveis
+    private final List<String> levelFiles;
+
+    // Estado e vidas no fim do jogo
+    private final GameState finalState;
+    private final int finalLives;
+
+    // Jogadas empacotadas (2 bits cada, a primeira nos bits mais baixos)
+    private final byte[] moves;
+    private final int moveCount;
+
+    /**
+    * Construtor do Replay
+    * @param seed Semente do gerador aleatorio
+    * @param playerName Nome do jogador
+    * @param levelFiles Caminhos dos ficheiros de niveis
+    * @param finalState Estado no fim do jogo
+    * @param finalLives Vidas no fim do jogo
+    * @param moves Jogadas empacotadas (2 bits cada)
+    * @param moveCount Numero de jogadas
+     */
+    public Replay(long seed, String playerName, List<String> levelFiles, GameState finalState,
+                  int finalLives, byte[] moves, int moveCount) {
+        this.seed = seed;
+        this.playerName = playerName;
+        this.levelFiles = Collections.unmodifiableList(new ArrayList<>(levelFiles));
+        this.finalState = finalState;
+        this.finalLives = finalLives;
+        this.moves = moves;
+        this.moveCount = moveCount;
+    }
+
+    /**
+    * Obtem a semente do gerador aleatorio
+    * @return Semente do jogo
+     */
+    public long getSeed() { return seed; }
+
+    /**
+    * Obtem o nome do jogador
+    * @return Nome do jogador
+     */
+    public String getPlayerName() { return playerName; }
+
+    /**
+    * Obtem os caminhos dos ficheiros de niveis
+    * @return Lista (nao modificavel) de niveis
+     */
+    public List<String> getLevelFiles() { return levelFiles; }
+
+    /**
+    * Obtem o estado no fim do jogo
+    * @return COMPLETED ou GAME_OVER (PLAYING se o jogo foi interrompido)
+     */
+    public GameState getFinalState() { return finalState; }
+
+    /**
+    * Obtem as vidas no fim do jogo (a pontuacao)
+    * @return Vidas finais
+     */
+    public int getFinalLives() { return finalLives; }
+
+    /**
+    * Obtem o numero de jogadas gravadas
+    * @return Numero de jogadas
+     */
+    public int getMoveCount() { return moveCount; }
+
+    /**
+    * Obtem uma jogada gravada
+    * @param index Indice da jogada (0 = primeira)
+    * @return Direcao da jogada
+     */
+    public Direction getMove(int index) {
+        return DIRECTIONS[(moves[index >> 2] >>> ((index & 3) * 2)) & 3];
+    }
+
+    /**
+    * Empacota uma jogada num array de jogadas (2 bits cada)
+    * @param moves Array de jogadas (tem de ter espaco para o indice)
+    * @param index Indice da jogada
+    * @param direction Direcao da jogada
+     */
+    static void putMove(byte[] moves, int index, Direction direction) {
+        moves[index >> 2] |= (byte) (direction.ordinal() << ((index & 3) * 2));
+    }
+
+    /**
+    * Guarda o replay num ficheiro
+    * @param file Ficheiro de destino
+    * @throws IOException Se o ficheiro nao puder ser escrito
+     */
+    public void write(Path file) throws IOException {
+        byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+        byte[][] levels = new byte[levelFiles.size()][];
+        int size = 4 + 4 + 8 + 5 + name.length + 5 + 1 + 4 + 5 + packedLength(moveCount) + 4;
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = levelFiles.get(i).getBytes(StandardCharsets.UTF_8);
+            size += 5 + levels[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(seed);
+        putBytes(buffer, name);
+        LevelLoader.writeVarInt(buffer, levels.length);
+        for (byte[] level : levels) {
+            putBytes(buffer, level);
+        }
+        buffer.put((byte) finalState.ordinal()).putInt(finalLives);
+        LevelLoader.writeVarInt(buffer, moveCount);
+        buffer.put(moves, 0, packedLength(moveCount));
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    /**
+    * Le um replay de um ficheiro
+    * @param file Ficheiro do replay
+    * @return Replay lido
+    * @throws IOException Se o ficheiro nao existir, estiver corrompido ou nao for um replay
+     */
+    public static Replay read(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < 4) {
+            throw new IOException("Replay truncado: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(data.length - 4) != (int) crc.getValue()) {
+            throw new IOException("Replay corrompido (CRC invalido): " + file);
+        }
+        buffer.limit(data.length - 4);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Nao e um ficheiro de replay: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versao de replay nao suportada (" + version + "): " + file);
+            }
+            long seed = buffer.getLong();
+            String playerName = getString(buffer);
+            int levelCount = LevelLoader.readVarInt(buffer);
+            List<String> levelFiles = new ArrayList<>(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                levelFiles.add(getString(buffer));
+            }
+            GameState finalState = GameState.values()[buffer.get()];
+            int finalLives = buffer.getInt();
+            int moveCount = LevelLoader.readVarInt(buffer);
+            byte[] moves = new byte[packedLength(moveCount)];
+            buffer.get(moves);
+            return new Replay(seed, playerName, levelFiles, finalState, finalLives, moves, moveCount);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Replay invalido: " + file, e);
+        }
+    }
+
+    /**
+    * Calcula quantos bytes ocupam as jogadas empacotadas
+    * @param moveCount Numero de jogadas
+    * @return Numero de bytes (4 jogadas por byte)
+     */
+    static int packedLength(int moveCount) {
+        return (moveCount + 3) >> 2;
+    }
+
+    /**
+    * Escreve um array de bytes precedido do seu comprimento em varint
+    * @param buffer Buffer de escrita
+    * @param bytes Bytes a escrever
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        LevelLoader.writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+    * Le um texto UTF-8 precedido do seu comprimento em varint
+    * @param buffer Buffer de leitura
+    * @return Texto lido
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[LevelLoader.readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package project;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Classe ReplayPlayer - Repete replays sem interface grafica
+ * Cria um motor com a mesma semente e niveis, aplica as jogadas gravadas o
+ * mais depressa possivel e verifica se o jogo termina com o mesmo estado e
+ * a mesma pontuacao (vidas) que foram gravados.
+ */
+public class ReplayPlayer {
+
+    /**
+    * Repete um replay
+    * @param replay Replay a repetir
+    * @return Motor do jogo depois de aplicar todas as jogadas
+     */
+    public static GameEngine play(Replay replay) {
+        GameEngine engine = new GameEngine(new ArrayList<>(replay.getLevelFiles()),
+            replay.getPlayerName(), replay.getSeed());
+        int count = replay.getMoveCount();
+        for (int i = 0; i < count && !engine.isFinished(); i++) {
+            engine.step(replay.getMove(i));
+        }
+        return engine;
+    }
+
+    /**
+    * Verifica se um replay, repetido, chega ao resultado gravado
+    * @param replay Replay a verificar
+    * @param engine Motor depois de repetir o replay
+    * @return true se o estado e as vidas finais coincidem
+     */
+    public static boolean matches(Replay replay, GameEngine engine) {
+        return engine.getState() == replay.getFinalState() && engine.getLives() == replay.getFinalLives();
+    }
+
+    /**
+    * Verifica replays gravados
+    * Uso: java project.ReplayPlayer jogo1.rpl [jogo2.rpl ...]
+    * Termina com codigo 1 se algum replay nao coincidir ou nao puder ser lido
+    * @param args Caminhos dos ficheiros de replay
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: java project.ReplayPlayer jogo1.rpl [jogo2.rpl ...]");
+            System.exit(2);
+        }
+        boolean allMatch = true;
+        for (String arg : args) {
+            try {
+                Replay replay = Replay.read(Paths.get(arg));
+                long start = System.nanoTime();
+                GameEngine engine = play(replay);
+                long elapsed = System.nanoTime() - start;
+                boolean ok = matches(replay, engine);
+                allMatch &= ok;
+                System.out.printf("%s: %s - %s, %d jogadas, vidas %d (gravado: %s, %d) em %.1f ms%n",
+                    arg, ok ? "OK" : "DIFERENTE", replay.getPlayerName(), replay.getMoveCount(),
+                    engine.getLives(), replay.getFinalState(), replay.getFinalLives(), elapsed / 1e6);
+                engine.close();
+            } catch (IOException e) {
+                allMatch = false;
+                System.err.println("Erro ao ler " + arg + ": " + e.getMessage());
+            }
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package project;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Classe ReplayRecorder - Grava as jogadas de um jogo
+ * E um consumidor do EventBus do jogo: cada evento MOVE e empacotado em 2 bits
+ * e os eventos de vidas e de fim de jogo guardam o estado final. Os eventos
+ * sao consumidos numa thread propria, por isso gravar (e escrever o ficheiro
+ * no fim do jogo) nao atrasa a thread que avanca o motor.
+ * Quando o jogo termina, o replay e guardado no ficheiro indicado (se existir).
+ */
+public class ReplayRecorder implements EventHandler {
+
+    // Direcoes pelo ordinal (os eventos guardam o ordinal da direcao)
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Motor do jogo gravado (semente, niveis e nome do jogador, que nunca mudam)
+    private final GameEngine engine;
+
+    // Anel de onde os eventos sao lidos
+    private final EventBus bus;
+
+    // Consumidor subscrito no anel
+    private final EventProcessor processor;
+
+    // Ficheiro onde guardar o replay no fim do jogo (pode ser null)
+    private final Path file;
+
+    // Jogadas empacotadas (2 bits cada)
+    private byte[] moves = new byte[64];
+    private int moveCount;
+
+    // Estado e vidas segundo o ultimo evento consumido
+    private GameState state = GameState.PLAYING;
+    private int lives;
+
+    /**
+    * Construtor do ReplayRecorder
+    * Subscreve-se logo no anel e comeca a consumir numa thread propria
+    * @param engine Motor do jogo a gravar (ja ligado ao anel com bus.connect)
+    * @param bus Anel onde o motor publica os acontecimentos
+    * @param file Ficheiro onde guardar o replay no fim do jogo, ou null para nao guardar
+     */
+    public ReplayRecorder(GameEngine engine, EventBus bus, Path file) {
+        this.engine = engine;
+        this.bus = bus;
+        this.file = file;
+        this.lives = engine.getLives();
+        processor = bus.subscribe(this);
+        processor.start("replay-recorder");
+    }
+
+    /**
+    * Consome um evento do jogo (chamado na thread do consumidor)
+    * @param event Evento (so e valido durante a chamada)
+    * @param sequence Sequencia do evento
+    * @param endOfBatch true se e o ultimo evento do lote
+     */
+    @Override
+    public synchronized void onEvent(GameEvent event, long sequence, boolean endOfBatch) {
+        switch (event.getType()) {
+            case MOVE:
+                if (moveCount == moves.length * 4) {
+                    moves = Arrays.copyOf(moves, moves.length * 2);
+                }
+                Replay.putMove(moves, moveCount++, DIRECTIONS[event.getDirection()]);
+                break;
+            case LIVES_CHANGED:
+                lives = event.getLives();
+                break;
+            case GAME_COMPLETED:
+                // Ultimo nivel completado: guarda o replay
+                finish(GameState.COMPLETED, event.getLives());
+                break;
+            case GAME_OVER:
+                // Game Over: guarda o replay
+                finish(GameState.GAME_OVER, event.getLives());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+    * Para de gravar: consome os eventos que faltam e cancela a subscricao
+    * Deve ser chamado depois de o motor parar de avancar
+     */
+    public void close() {
+        processor.stopAndWait();
+        bus.unsubscribe(processor);
+    }
+
+    /**
+    * Cria o replay com as jogadas gravadas ate agora e o estado do ultimo evento
+    * @return Replay do jogo
+     */
+    public synchronized Replay toReplay() {
+        return new Replay(engine.getSeed(), engine.getPlayerName(), engine.getLevelFiles(),
+            state, lives, Arrays.copyOf(moves, Replay.packedLength(moveCount)), moveCount);
+    }
+
+    /**
+    * Regista o fim do jogo e guarda o replay no ficheiro (se foi indicado)
+    * @param finalState Estado final do jogo
+    * @param finalLives Vidas finais
+     */
+    private void finish(GameState finalState, int finalLives) {
+        state = finalState;
+        lives = finalLives;
+        if (file == null) {
+            return;
+        }
+        try {
+            toReplay().write(file);
+        } catch (IOException e) {
+            System.err.println("Erro ao guardar replay: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package project;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe Route - Resultado do RouteSolver para um nivel
+ * Indica se a ilha e alcancavel, as jogadas do melhor caminho e com quantas
+ * vidas o barco chega a ilha seguindo esse caminho.
+ */
+public final class Route {
+
+    // Indica se existe um caminho ate a ilha
+    private final boolean found;
+
+    // Jogadas do caminho, do barco ate a ilha
+    private final List<Direction> moves;
+
+    // Vidas ao chegar a ilha (ou as vidas iniciais se nao ha caminho)
+    private final int finalLives;
+
+    // Sereias apanhadas pelo caminho
+    private final int mermaids;
+
+    // Numero de estados expandidos pela pesquisa
+    private final int explored;
+
+    /**
+    * Construtor do Route
+    * @param found true se existe caminho
+    * @param moves Jogadas do caminho (vazia se nao ha caminho)
+    * @param finalLives Vidas ao chegar a ilha
+    * @param mermaids Sereias apanhadas
+    * @param explored Estados expandidos pela pesquisa
+     */
+    public Route(boolean found, List<Direction> moves, int finalLives, int mermaids, int explored) {
+        this.found = found;
+        this.moves = Collections.unmodifiableList(moves);
+        this.finalLives = finalLives;
+        this.mermaids = mermaids;
+        this.explored = explored;
+    }
+
+    /**
+    * Verifica se existe um caminho ate a ilha
+    * @return true se a ilha e alcancavel sem perder o jogo
+     */
+    public boolean isFound() { return found; }
+
+    /**
+    * Obtem as jogadas do caminho
+    * @return Lista (nao modificavel) de direcoes
+     */
+    public List<Direction> getMoves() { return moves; }
+
+    /**
+    * Obtem as vidas com que o barco chega a ilha (par do nivel)
+    * @return Vidas finais
+     */
+    public int getFinalLives() { return finalLives; }
+
+    /**
+    * Obtem o numero de sereias apanhadas pelo caminho
+    * @return Sereias apanhadas
+     */
+    public int getMermaids() { return mermaids; }
+
+    /**
+    * Obtem o numero de estados expandidos pela pesquisa
+    * @return Estados expandidos
+     */
+    public int getExplored() { return explored; }
+}
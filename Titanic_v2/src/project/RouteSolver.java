@@ -0,0 +1,322 @@
+package project;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classe RouteSolver - Calcula o melhor caminho do barco ate a ilha
+ * O melhor caminho e o que chega a ilha com mais vidas. Conta o custo de cada
+ * movimento, os explosivos no caminho, os teletransportes dos vortices e o bonus
+ * das sereias (cada uma so pode ser apanhada uma vez); o pirata nunca e tocado.
+ *
+ * A pesquisa e um A* (Dijkstra quando ha vortices, que tornam a distancia
+ * Manhattan otimista demais) sobre estados (celula, sereias apanhadas).
+ * O estado e empacotado num int (celula nos bits altos, mascara das sereias nos
+ * baixos) e a fila de prioridade e um heap de longs, sem objetos por estado.
+ * O custo guardado nao inclui o bonus das sereias, por isso nunca e negativo;
+ * as vidas de um estado sao as vidas iniciais - custo + bonus da mascara.
+ *
+ * Limitacoes: se houver demasiadas sereias para caberem em MAX_STATES estados,
+ * as que sobram sao tratadas como agua (o par calculado e entao um minimo).
+ * Os explosivos gerados ao acaso pelo pirata nao sao previstos, e um explosivo
+ * que ja estava no mapa custa vidas sempre que o caminho passa por ele.
+ *
+ * O par de cada nivel e calculado uma unica vez por ficheiro e vidas iniciais
+ * (enquanto o ficheiro nao mudar): abrir de novo a tabela de pontuacoes so le
+ * os valores guardados.
+ */
+public class RouteSolver {
+
+    /**
+     * Par ja calculado de um nivel
+     */
+    private static final class LevelPar {
+        // Data de alteracao do ficheiro quando o par foi calculado
+        final FileTime modified;
+        // Vidas ao chegar a ilha, ou -1 se a ilha nao e alcancavel
+        final int finalLives;
+
+        LevelPar(FileTime modified, int finalLives) {
+            this.modified = modified;
+            this.finalLives = finalLives;
+        }
+    }
+
+    // Par de cada nivel ja calculado: "ficheiro#vidas iniciais" -> resultado
+    private static final ConcurrentHashMap<String, LevelPar> PAR_CACHE = new ConcurrentHashMap<>();
+
+    // Numero maximo de estados da pesquisa (celulas x combinacoes de sereias)
+    private static final int MAX_STATES = 1 << 22;
+
+    // Numero maximo de ilhas para usar a distancia Manhattan como estimativa
+    private static final int MAX_HEURISTIC_ISLANDS = 8;
+
+    // Tipos de celula usados na pesquisa
+    private static final byte BLOCKED = 0, WATER = 1, EXPLOSIVE = 2, ISLAND = 3, VORTEX = 4, MERMAID = 5;
+
+    // Direcoes pela ordem guardada em cada estado anterior
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+    * Calcula o melhor caminho do barco ate a ilha
+    * @param map Mapa do nivel (no estado inicial)
+    * @param startLives Vidas no inicio do nivel
+    * @return Melhor caminho, ou um Route com isFound() false se a ilha nao e alcancavel
+     */
+    public static Route solve(Map map, int startLives) {
+        GridView grid = map.getGrid();
+        Boat boat = map.getBoat();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int cells = width * height;
+        if (boat == null || startLives <= 0 || cells == 0) {
+            return new Route(false, Collections.emptyList(), startLives, 0, 0);
+        }
+        if (cells > (1 << 29)) {
+            throw new IllegalArgumentException("Mapa demasiado grande para o RouteSolver: " + width + "x" + height);
+        }
+
+        // Copia a grelha para um array de tipos (uma unica passagem pela grelha)
+        byte[] kind = new byte[cells];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                kind[r * width + c] = kindOf(grid.get(r, c));
+            }
+        }
+
+        // Escolhe quantas sereias entram na mascara sem passar MAX_STATES estados
+        EntityIndex entities = map.getEntities();
+        int bits = 0;
+        while (bits < Math.min(entities.count('M'), 30) && ((long) cells << (bits + 1)) <= MAX_STATES) {
+            bits++;
+        }
+        IntIntHashMap mermaidBit = new IntIntHashMap(Math.max(bits, 1));
+        for (int i = 0; i < bits; i++) {
+            mermaidBit.put(entities.get('M', i), i);
+        }
+        int maskBits = (1 << bits) - 1;
+
+        // Estimativa (distancia Manhattan a ilha mais proxima) so se nao houver vortices
+        int islandCount = entities.count('I');
+        boolean heuristic = islandCount > 0 && islandCount <= MAX_HEURISTIC_ISLANDS && entities.count('V') == 0;
+        int[] islands = new int[heuristic ? islandCount : 0];
+        for (int i = 0; i < islands.length; i++) {
+            islands[i] = entities.get('I', i);
+        }
+
+        VortexRoutes routes = map.getRoutes();
+        int states = cells << bits;
+        int[] dist = new int[states];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        // Estado anterior e direcao usada para la chegar: (estado << 2) | direcao
+        int[] prev = new int[states];
+        LongMinHeap open = new LongMinHeap(1024);
+
+        int start = (boat.getRow() * width + boat.getCol()) << bits;
+        dist[start] = 0;
+        open.push(((long) estimate(start >>> bits, islands, width) << 32) | start);
+
+        int bestLives = Integer.MIN_VALUE;
+        int bestState = -1;
+        int explored = 0;
+        while (!open.isEmpty()) {
+            long key = open.pop();
+            int f = (int) (key >>> 32);
+            int state = (int) key;
+            int cell = state >>> bits;
+            int mask = state & maskBits;
+            int cost = dist[state];
+            if (f > cost + estimate(cell, islands, width)) {
+                continue; // Entrada antiga, o estado ja foi alcancado com menor custo
+            }
+            // Nenhum estado por expandir pode chegar a ilha com mais vidas
+            if (bestState >= 0 && startLives - f + GameEngine.MERMAID_BONUS * bits <= bestLives) {
+                break;
+            }
+            explored++;
+
+            if (kind[cell] == ISLAND) {
+                // Tocar na ilha termina o nivel: nao se continua a partir daqui
+                int lives = startLives - cost + GameEngine.MERMAID_BONUS * Integer.bitCount(mask);
+                if (lives > bestLives) {
+                    bestLives = lives;
+                    bestState = state;
+                }
+                continue;
+            }
+
+            int row = cell / width;
+            int col = cell - row * width;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int nextRow = row + DIRECTIONS[d].getDRow();
+                int nextCol = col + DIRECTIONS[d].getDCol();
+                if (nextRow < 0 || nextRow >= height || nextCol < 0 || nextCol >= width) {
+                    continue;
+                }
+                int next = nextRow * width + nextCol;
+                if (kind[next] == BLOCKED) {
+                    continue;
+                }
+                // Um vortice com rota leva o barco para o vortice de destino
+                int landing = next;
+                if (kind[next] == VORTEX) {
+                    int destination = routes.destination(next);
+                    if (destination >= 0) {
+                        landing = destination;
+                    }
+                }
+
+                int nextCost = cost + GameEngine.MOVE_COST + (kind[landing] == EXPLOSIVE ? GameEngine.EXPLOSIVE_COST : 0);
+                int nextMask = mask;
+                if (kind[landing] == MERMAID) {
+                    int bit = mermaidBit.get(landing, -1);
+                    if (bit >= 0) {
+                        nextMask |= 1 << bit;
+                    }
+                }
+                // O barco nao pode ficar sem vidas pelo caminho
+                if (startLives - nextCost + GameEngine.MERMAID_BONUS * Integer.bitCount(nextMask) <= 0) {
+                    continue;
+                }
+                int nextState = (landing << bits) | nextMask;
+                if (nextCost < dist[nextState]) {
+                    dist[nextState] = nextCost;
+                    prev[nextState] = (state << 2) | d;
+                    open.push(((long) (nextCost + estimate(landing, islands, width)) << 32) | nextState);
+                }
+            }
+        }
+
+        if (bestState < 0) {
+            return new Route(false, Collections.emptyList(), startLives, 0, explored);
+        }
+        // Reconstroi as jogadas seguindo os estados anteriores ate ao inicio
+        ArrayList<Direction> moves = new ArrayList<>();
+        for (int state = bestState; state != start; state = prev[state] >>> 2) {
+            moves.add(DIRECTIONS[prev[state] & 3]);
+        }
+        Collections.reverse(moves);
+        return new Route(true, moves, bestLives, Integer.bitCount(bestState & maskBits), explored);
+    }
+
+    /**
+    * Calcula o par de um conjunto de niveis: as vidas no fim de cada nivel
+    * seguindo sempre o melhor caminho (as vidas passam de um nivel para o seguinte)
+    * @param levelFiles Caminhos dos niveis, pela ordem em que sao jogados
+    * @param startLives Vidas no inicio do jogo
+    * @return Vidas no fim de cada nivel (-1 a partir do primeiro nivel sem caminho)
+    * @throws IOException Se algum nivel nao puder ser lido
+     */
+    public static int[] par(List<String> levelFiles, int startLives) throws IOException {
+        int[] par = new int[levelFiles.size()];
+        Arrays.fill(par, -1);
+        int lives = startLives;
+        for (int i = 0; i < levelFiles.size(); i++) {
+            lives = levelPar(levelFiles.get(i), lives);
+            if (lives < 0) {
+                break;
+            }
+            par[i] = lives;
+        }
+        return par;
+    }
+
+    /**
+    * Obtem o par de um nivel, calculando-o so se ainda nao foi calculado
+    * para estas vidas iniciais (ou se o ficheiro mudou entretanto)
+    * @param file Caminho do nivel
+    * @param startLives Vidas no inicio do nivel
+    * @return Vidas ao chegar a ilha, ou -1 se a ilha nao e alcancavel
+    * @throws IOException Se o nivel nao puder ser lido
+     */
+    private static int levelPar(String file, int startLives) throws IOException {
+        String key = file + "#" + startLives;
+        FileTime modified = Files.getLastModifiedTime(Paths.get(file));
+        LevelPar cached = PAR_CACHE.get(key);
+        if (cached != null && cached.modified.equals(modified)) {
+            return cached.finalLives;
+        }
+        Map map = new Map(LevelLoader.load(file), null);
+        try {
+            Route route = solve(map, startLives);
+            int finalLives = route.isFound() ? route.getFinalLives() : -1;
+            PAR_CACHE.put(key, new LevelPar(modified, finalLives));
+            return finalLives;
+        } finally {
+            map.close();
+        }
+    }
+
+    /**
+    * Converte o simbolo de uma celula no tipo usado pela pesquisa
+    * @param symbol Simbolo da celula
+    * @return Tipo da celula
+     */
+    private static byte kindOf(char symbol) {
+        switch (symbol) {
+            case 'X': case 'R': case 'P': return BLOCKED; // Fora do mapa, rocha ou pirata
+            case 'E': return EXPLOSIVE;
+            case 'I': return ISLAND;
+            case 'V': return VORTEX;
+            case 'M': return MERMAID;
+            default: return WATER;
+        }
+    }
+
+    /**
+    * Estima o custo minimo de uma celula ate a ilha mais proxima
+    * @param cell Celula empacotada
+    * @param islands Ilhas (vazio para nao usar estimativa)
+    * @param width Largura do mapa
+    * @return Distancia Manhattan a ilha mais proxima (0 sem ilhas)
+     */
+    private static int estimate(int cell, int[] islands, int width) {
+        if (islands.length == 0) {
+            return 0;
+        }
+        int row = cell / width;
+        int col = cell - row * width;
+        int best = Integer.MAX_VALUE;
+        for (int island : islands) {
+            int islandRow = island / width;
+            int distance = Math.abs(islandRow - row) + Math.abs(island - islandRow * width - col);
+            best = Math.min(best, distance);
+        }
+        return best * GameEngine.MOVE_COST;
+    }
+
+    /**
+    * Mostra o melhor caminho e o par de cada nivel
+    * Uso: java project.RouteSolver [nivel1.txt ...] (sem niveis, usa os niveis do jogo)
+    * @param args Caminhos dos niveis
+     */
+    public static void main(String[] args) {
+        List<String> levelFiles = args.length > 0 ? Arrays.asList(args) : GameEngine.defaultLevelFiles();
+        int lives = GameEngine.STARTING_LIVES;
+        for (String file : levelFiles) {
+            try {
+                Map map = new Map(LevelLoader.load(file), null);
+                long start = System.nanoTime();
+                Route route = solve(map, lives);
+                double ms = (System.nanoTime() - start) / 1e6;
+                map.close();
+                if (!route.isFound()) {
+                    System.out.printf("%s: sem caminho com %d vidas (%.1f ms)%n", file, lives, ms);
+                    break;
+                }
+                System.out.printf("%s: par %d vidas, %d jogadas, %d sereias, %d estados (%.1f ms)%n",
+                    file, route.getFinalLives(), route.getMoves().size(), route.getMermaids(),
+                    route.getExplored(), ms);
+                lives = route.getFinalLives();
+            } catch (IOException e) {
+                System.err.println("Erro ao ler " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
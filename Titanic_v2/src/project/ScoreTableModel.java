@@ -0,0 +1,266 @@
+package project;
+import java.util.Arrays;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Classe ScoreTableModel - Modelo da tabela de pontuacoes sem uma linha por objeto
+ * Os jogadores ficam em arrays primitivos ordenados pelo nome (nomes e pontos) e
+ * numa permutacao ordenada pela pontuacao. A JTable so pede as celulas das linhas
+ * visiveis, e cada celula e criada nesse momento, por isso abrir a tabela com um
+ * milhao de jogadores nao cria um milhao de linhas nem Integers.
+ *
+ * Ordenar muda apenas a forma como as linhas sao lidas dos arrays. O filtro por
+ * prefixo do nome e uma pesquisa binaria (os nomes estao ordenados) que da um
+ * intervalo de posicoes; so com a ordem por pontuacao e preciso guardar os
+ * indices das linhas filtradas. Os dados nunca sao copiados.
+ */
+public class ScoreTableModel extends AbstractTableModel {
+
+    // Colunas da tabela
+    public static final int NAME_COLUMN = 0;
+    public static final int SCORE_COLUMN = 1;
+    private static final String[] COLUMN_NAMES = { "Name", "Score" };
+
+    // Nomes e pontuacoes, ordenados pelo nome (sem distinguir maiusculas)
+    private final String[] names;
+    private final int[] points;
+
+    // Posicoes (na ordem dos nomes) da maior para a menor pontuacao
+    private final int[] byScore;
+
+    // Coluna pela qual a tabela esta ordenada e sentido
+    private int sortColumn = SCORE_COLUMN;
+    private boolean descending = true;
+
+    // Filtro atual e intervalo de posicoes (na ordem dos nomes) que o respeitam
+    private String prefix = "";
+    private int from;
+    private int to;
+
+    // Linhas filtradas na ordem por pontuacao (null sem filtro ou na ordem por nome)
+    private int[] filtered;
+
+    /**
+    * Cria o modelo com a melhor pontuacao de cada jogador do indice do ranking
+    * @param ranking Indice do ranking (ja atualizado)
+    * @return Modelo ordenado da maior para a menor pontuacao
+     */
+    public static ScoreTableModel fromRanking(RankingService ranking) {
+        int[] size = new int[1];
+        String[][] names = { new String[Math.max(16, ranking.players())] };
+        int[][] points = { new int[names[0].length] };
+        ranking.forEachBest((name, score) -> {
+            int i = size[0]++;
+            if (i == names[0].length) {
+                names[0] = Arrays.copyOf(names[0], i * 2);
+                points[0] = Arrays.copyOf(points[0], i * 2);
+            }
+            names[0][i] = name;
+            points[0][i] = score;
+        });
+        return new ScoreTableModel(names[0], points[0], size[0]);
+    }
+
+    /**
+    * Construtor do ScoreTableModel
+    * @param names Nomes dos jogadores (o array passa a pertencer ao modelo)
+    * @param points Pontuacao de cada jogador (o array passa a pertencer ao modelo)
+    * @param count Numero de jogadores (as primeiras count posicoes)
+     */
+    public ScoreTableModel(String[] names, int[] points, int count) {
+        // Ordena pelo nome uma permutacao e arruma os dados por essa ordem
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sortByName(order, names);
+        this.names = new String[count];
+        this.points = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.names[i] = names[order[i]];
+            this.points[i] = points[order[i]];
+        }
+
+        // Ordem por pontuacao (desempate pelo nome) com um sort de longs:
+        // a pontuacao invertida fica nos bits altos e a posicao do nome nos baixos
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long score = (long) this.points[i] - Integer.MIN_VALUE; // 0 .. 2^32 - 1
+            keys[i] = (0xFFFFFFFFL - score) << 31 | i;
+        }
+        Arrays.sort(keys);
+        byScore = new int[count];
+        for (int i = 0; i < count; i++) {
+            byScore[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        to = count;
+    }
+
+    /**
+    * Ordena uma permutacao pelos nomes a que aponta (merge sort sem objetos)
+    * @param order Posicoes a ordenar
+    * @param names Nomes
+     */
+    private static void sortByName(int[] order, String[] names) {
+        int[] buffer = new int[order.length];
+        int[] src = order;
+        int[] dst = buffer;
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int lo = 0; lo < order.length; lo += 2 * width) {
+                int mid = Math.min(lo + width, order.length);
+                int hi = Math.min(lo + 2 * width, order.length);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    dst[k++] = String.CASE_INSENSITIVE_ORDER.compare(names[src[j]], names[src[i]]) < 0
+                        ? src[j++] : src[i++];
+                }
+                while (i < mid) {
+                    dst[k++] = src[i++];
+                }
+                while (j < hi) {
+                    dst[k++] = src[j++];
+                }
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, order.length);
+        }
+    }
+
+    /**
+    * Ordena a tabela por uma coluna
+    * Se ja estiver ordenada por essa coluna, inverte o sentido
+    * @param column NAME_COLUMN ou SCORE_COLUMN
+     */
+    public void sortBy(int column) {
+        if (column == sortColumn) {
+            descending = !descending;
+        } else {
+            sortColumn = column;
+            descending = column == SCORE_COLUMN; // Pontuacoes comecam da maior para a menor
+        }
+        applyFilter();
+    }
+
+    /**
+    * Mostra apenas os jogadores cujo nome comeca por um prefixo (sem distinguir maiusculas)
+    * @param prefix Prefixo do nome ("" mostra todos)
+     */
+    public void setPrefix(String prefix) {
+        this.prefix = prefix == null ? "" : prefix;
+        applyFilter();
+    }
+
+    /**
+    * Calcula as linhas visiveis para o filtro e a ordem atuais e avisa a tabela
+     */
+    private void applyFilter() {
+        // Os nomes com o prefixo formam um intervalo na ordem dos nomes
+        from = lowerBound(prefix);
+        to = from;
+        int hi = names.length;
+        while (to < hi) {
+            int mid = (to + hi) >>> 1;
+            if (names[mid].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                to = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        // Na ordem por pontuacao, as linhas filtradas sao recolhidas por essa ordem
+        filtered = null;
+        if (sortColumn == SCORE_COLUMN && !prefix.isEmpty()) {
+            filtered = new int[to - from];
+            int count = 0;
+            for (int position : byScore) {
+                if (position >= from && position < to) {
+                    filtered[count++] = position;
+                }
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+    * Procura a primeira posicao cujo nome nao e menor do que o prefixo
+    * @param prefix Prefixo do nome
+    * @return Posicao na ordem dos nomes
+     */
+    private int lowerBound(String prefix) {
+        int lo = 0;
+        int hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(names[mid], prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+    * Obtem a posicao (na ordem dos nomes) do jogador mostrado numa linha
+    * @param row Linha da tabela
+    * @return Posicao nos arrays de nomes e pontuacoes
+     */
+    private int positionOf(int row) {
+        int count = to - from;
+        int index = descending ? count - 1 - row : row;
+        if (sortColumn == NAME_COLUMN) {
+            return from + index;
+        }
+        // Ordem por pontuacao: byScore vai da maior para a menor
+        index = descending ? row : count - 1 - row;
+        return filtered != null ? filtered[index] : byScore[index];
+    }
+
+    @Override
+    public int getRowCount() {
+        return to - from;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == SCORE_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int position = positionOf(row);
+        return column == NAME_COLUMN ? names[position] : (Object) points[position];
+    }
+
+    /**
+    * Obtem a pontuacao mostrada numa linha (sem criar um Integer)
+    * @param row Linha da tabela
+    * @return Pontuacao do jogador
+     */
+    public int getPoints(int row) {
+        return points[positionOf(row)];
+    }
+
+    /**
+    * Obtem o nome mostrado numa linha
+    * @param row Linha da tabela
+    * @return Nome do jogador
+     */
+    public String getName(int row) {
+        return names[positionOf(row)];
+    }
+}
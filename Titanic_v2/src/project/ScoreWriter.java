@@ -0,0 +1,486 @@
+package project;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Classe ScoreWriter - Escreve as pontuacoes no ranking.txt numa thread de fundo
+ * Quem guarda uma pontuacao apenas a poe numa fila limitada e continua; a thread
+ * do ScoreWriter retira todas as pontuacoes pendentes de uma vez e escreve-as
+ * como um unico grupo (group commit) num FileChannel que fica sempre aberto,
+ * em vez de abrir, escrever e fechar o ficheiro por cada pontuacao.
+ *
+ * A durabilidade e escolhida com uma SyncPolicy (fsync por grupo, periodico ou
+ * nunca). Se a fila encher porque o disco nao acompanha, quem submete espera
+ * ate haver espaco (contrapressao) em vez de perder pontuacoes ou gastar
+ * memoria sem limite. Fora desse caso, o jogo nunca espera pelo disco.
+ *
+ * O escritor partilhado do ranking.txt (shared) usa a politica da propriedade
+ * -Dtitanic.scoreSync=none|batch|periodic (PERIODIC por omissao, tambem usada
+ * se o valor for desconhecido) e e fechado,
+ * escrevendo o que falta, quando a JVM termina. Se o ranking.txt nao puder ser
+ * aberto, o erro e mostrado e as pontuacoes sao ignoradas (como antes, guardar
+ * uma pontuacao nunca faz falhar o jogo).
+ */
+public class ScoreWriter implements Runnable, AutoCloseable {
+
+    // Numero de pontuacoes que podem esperar na fila
+    public static final int QUEUE_CAPACITY = 4096;
+
+    // Intervalo entre fsyncs na politica PERIODIC (milissegundos)
+    public static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    // Tempo maximo de espera pela troca do ficheiro (segundos)
+    private static final long ROTATE_TIMEOUT_SECONDS = 10;
+
+    // Numero maximo de pontuacoes escritas num grupo
+    private static final int MAX_BATCH = 1024;
+
+    // Tamanho do buffer onde cada grupo e codificado
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Escritor partilhado do ranking.txt (criado no primeiro uso)
+    private static ScoreWriter shared;
+
+    // Marca posta na fila pelo close e pelo rotate para acordar a thread de escrita
+    // (interromper a thread fecharia o FileChannel a meio de uma escrita)
+    private static final Score WAKE = new Score("", 0);
+
+    // Ficheiro onde as pontuacoes sao acrescentadas
+    private final Path file;
+
+    // Canal do ficheiro, sempre aberto (so muda quando o ficheiro e trocado pelo rotate)
+    private FileChannel channel;
+
+    /**
+     * Pedido de troca do ficheiro: novo nome do ficheiro atual e resultado
+     */
+    private static final class Rotation {
+        final Path target;
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        Rotation(Path target) {
+            this.target = target;
+        }
+    }
+
+    // Troca do ficheiro pedida pelo RankingCompactor (feita pela thread de escrita)
+    // Quem a retira daqui fica com ela: a thread de escrita para a fazer, quem a
+    // pediu para a cancelar; por isso a troca ou e feita toda ou nao e feita
+    private final AtomicReference<Rotation> rotation = new AtomicReference<>();
+
+    // Garante que so ha um pedido de troca de cada vez
+    private final Object rotateLock = new Object();
+
+    // Quando forcar a escrita para o disco
+    private final SyncPolicy syncPolicy;
+
+    // Pontuacoes a espera de ser escritas
+    private final ArrayBlockingQueue<Score> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Grupo a ser escrito (reutilizado)
+    private final ArrayList<Score> batch = new ArrayList<>(MAX_BATCH);
+
+    // Buffer onde o grupo e codificado (reutilizado)
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Pontuacoes submetidas e ja escritas (ou perdidas por erro de escrita)
+    private final AtomicLong submitted = new AtomicLong();
+    private long written;
+
+    // Estatisticas: grupos escritos, fsyncs feitos, pontuacoes perdidas por erro
+    private long batches;
+    private long syncs;
+    private long failed;
+
+    // Indica se ha bytes escritos desde o ultimo fsync
+    private boolean dirty;
+
+    // Momento do ultimo fsync (nanossegundos)
+    private long lastSync = System.nanoTime();
+
+    // Indica se o escritor aceita pontuacoes novas
+    private volatile boolean running = true;
+
+    // Lock de leitura para submeter e de escrita para fechar: uma pontuacao aceite
+    // pelo submit ja esta na fila quando o close pede a paragem da thread
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    // Thread que escreve os grupos
+    private final Thread thread;
+
+    /**
+    * Obtem o escritor partilhado do ranking.txt
+    * Se o ficheiro nao puder ser aberto, mostra o erro e devolve um escritor que
+    * ignora as pontuacoes (a abertura volta a ser tentada na chamada seguinte)
+    * @return Escritor do ficheiro do RankingService
+     */
+    public static synchronized ScoreWriter shared() {
+        if (shared == null) {
+            Path file = Paths.get(RankingService.RANKING_FILE);
+            try {
+                ScoreWriter writer = new ScoreWriter(file, syncPolicyProperty());
+                // Escreve as pontuacoes pendentes antes de a JVM terminar
+                Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "score-writer-shutdown"));
+                shared = writer;
+            } catch (IOException e) {
+                System.err.println("Erro ao salvar ranking: " + e.getMessage());
+                return new ScoreWriter(file);
+            }
+        }
+        return shared;
+    }
+
+    /**
+    * Le a politica de fsync da propriedade -Dtitanic.scoreSync
+    * Um valor desconhecido e reportado e e usada a politica por omissao, para
+    * que uma opcao mal escrita nao impeca de guardar as pontuacoes
+    * @return Politica indicada, ou PERIODIC
+     */
+    private static SyncPolicy syncPolicyProperty() {
+        String policy = System.getProperty("titanic.scoreSync", "periodic");
+        try {
+            return SyncPolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Politica de fsync desconhecida: " + policy + " (usada PERIODIC)");
+            return SyncPolicy.PERIODIC;
+        }
+    }
+
+    /**
+    * Construtor de um escritor desligado (o ficheiro nao pode ser aberto)
+    * Nao aceita pontuacoes, nao tem nada por escrever e nao pode trocar o ficheiro
+    * @param file Ficheiro que nao foi possivel abrir
+     */
+    private ScoreWriter(Path file) {
+        this.file = file;
+        this.syncPolicy = SyncPolicy.NONE;
+        running = false;
+        thread = new Thread(this, "score-writer"); // Nunca e iniciada
+    }
+
+    /**
+    * Construtor do ScoreWriter
+    * Abre o ficheiro em modo de acrescentar e inicia a thread de escrita
+    * @param file Ficheiro onde as pontuacoes sao acrescentadas (criado se nao existir)
+    * @param syncPolicy Quando forcar a escrita para o disco
+    * @throws IOException Se o ficheiro nao puder ser aberto
+     */
+    public ScoreWriter(Path file, SyncPolicy syncPolicy) throws IOException {
+        this.file = file;
+        this.channel = open(file);
+        this.syncPolicy = syncPolicy;
+        thread = new Thread(this, "score-writer");
+        thread.setDaemon(true); // O fecho e feito pelo close (ou pelo shutdown hook)
+        thread.start();
+    }
+
+    /**
+    * Submete uma pontuacao para ser escrita (pode ser chamado de qualquer thread)
+    * Volta logo, a nao ser que a fila esteja cheia: nesse caso espera por espaco
+    * @param playerName Nome do jogador
+    * @param points Pontuacao
+    * @return false se o escritor ja estiver fechado (a pontuacao nao e guardada)
+     */
+    public boolean submit(String playerName, int points) {
+        Score score = new Score(playerName, points);
+        // Varios submit podem correr ao mesmo tempo; o close espera que terminem
+        closeLock.readLock().lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (!queue.offer(score)) {
+                queue.put(score); // Contrapressao: o disco nao acompanha
+            }
+            submitted.incrementAndGet();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+    * Espera que todas as pontuacoes ja submetidas estejam escritas no ficheiro
+    * (nao espera pelo fsync: ficam visiveis para quem le o ficheiro)
+     */
+    public synchronized void awaitWritten() {
+        long target = submitted.get();
+        try {
+            while (written < target && thread.isAlive()) {
+                wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+    * Ciclo da thread de escrita: espera por pontuacoes e escreve-as em grupos
+     */
+    @Override
+    public void run() {
+        long pollNanos = TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MILLIS);
+        while (running || !queue.isEmpty()) {
+            try {
+                Score first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    batch.removeIf(score -> score == WAKE); // Pode haver marcas do close e do rotate
+                    if (!batch.isEmpty()) {
+                        writeBatch();
+                    }
+                }
+                rotate();
+                syncIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        rotate();
+        if (dirty) {
+            sync();
+        }
+    }
+
+    /**
+    * Abre um ficheiro para acrescentar pontuacoes
+    * @param file Ficheiro (criado se nao existir)
+    * @return Canal em modo de acrescentar
+    * @throws IOException Se o ficheiro nao puder ser aberto
+     */
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    /**
+    * Pede a troca do ficheiro: tudo o que ja foi escrito passa para outro nome e as
+    * pontuacoes seguintes vao para um ficheiro novo com o nome original
+    * A troca e feita pela thread de escrita, entre dois grupos, por isso quem submete
+    * pontuacoes nunca espera por ela; so quem pede a troca espera que termine.
+    * A troca e tudo ou nada: se devolver false o ficheiro nao foi nem vai ser trocado
+    * @param target Novo nome do ficheiro atual (nao pode existir)
+    * @return true se o ficheiro foi trocado
+     */
+    public boolean rotate(Path target) {
+        // Lock proprio: o lock do escritor e usado pela thread de escrita em cada grupo
+        synchronized (rotateLock) {
+            if (!running) {
+                return false;
+            }
+            Rotation request = new Rotation(target);
+            rotation.set(request);
+            queue.offer(WAKE); // Se a fila estiver cheia, a thread ja esta acordada
+            try {
+                return request.done.get(ROTATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return cancelOrAwait(request);
+            } catch (ExecutionException e) {
+                System.err.println("Erro ao trocar ranking: " + e.getCause().getMessage());
+                return false;
+            } catch (TimeoutException e) {
+                // A troca nao terminou a tempo (por exemplo um fsync lento, ou o escritor parou)
+                return cancelOrAwait(request);
+            }
+        }
+    }
+
+    /**
+    * Cancela um pedido de troca que a thread de escrita ainda nao comecou, ou,
+    * se ja comecou, espera pelo resultado (a troca ja nao pode ser desfeita)
+    * @param request Pedido de troca
+    * @return true se o ficheiro foi trocado
+     */
+    private boolean cancelOrAwait(Rotation request) {
+        if (rotation.compareAndSet(request, null)) {
+            return false; // A thread de escrita nunca o vai ver
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return request.done.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    System.err.println("Erro ao trocar ranking: " + e.getCause().getMessage());
+                    return false;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+    * Troca o ficheiro (na thread de escrita) se houver um pedido: forca o que falta
+    * para o disco, muda o nome do ficheiro atual e abre um ficheiro novo com o nome original
+    * Se o destino ja existir a troca e recusada (o move atomico substitui-lo-ia)
+     */
+    private void rotate() {
+        Rotation request = rotation.getAndSet(null);
+        if (request == null) {
+            return;
+        }
+        boolean moved = false;
+        try {
+            if (Files.exists(request.target)) {
+                throw new FileAlreadyExistsException(request.target.toString());
+            }
+            if (dirty) {
+                sync();
+            }
+            channel.close();
+            try {
+                Files.move(file, request.target, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            } finally {
+                // Mesmo que a troca falhe, o escritor continua a escrever no ficheiro original
+                channel = open(file);
+            }
+            request.done.complete(true);
+        } catch (IOException e) {
+            if (moved) {
+                // O ficheiro ja foi trocado: quem pediu tem de o saber, mesmo que reabrir falhe
+                System.err.println("Erro ao salvar ranking: " + e.getMessage());
+                request.done.complete(true);
+            } else {
+                request.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+    * Escreve o grupo atual no ficheiro com o menor numero de chamadas ao sistema
+     */
+    private void writeBatch() {
+        int count = batch.size();
+        try {
+            buffer.clear();
+            for (Score score : batch) {
+                byte[] line = (score.name + ";" + score.points + "\n").getBytes(StandardCharsets.UTF_8);
+                if (line.length > buffer.remaining()) {
+                    drain();
+                }
+                if (line.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(line)); // Linha maior do que o buffer
+                } else {
+                    buffer.put(line);
+                }
+            }
+            drain();
+            dirty = true;
+            batches++;
+            if (syncPolicy == SyncPolicy.BATCH) {
+                sync();
+            }
+        } catch (IOException e) {
+            failed += count;
+            System.err.println("Erro ao salvar ranking: " + e.getMessage());
+        }
+        batch.clear();
+        synchronized (this) {
+            written += count;
+            notifyAll();
+        }
+    }
+
+    /**
+    * Escreve todo o conteudo do buffer no ficheiro e limpa-o
+    * @throws IOException Se a escrita falhar
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+    * Faz fsync se a politica PERIODIC o pedir (ha bytes por forcar e ja passou o intervalo)
+     */
+    private void syncIfDue() {
+        if (syncPolicy == SyncPolicy.PERIODIC && dirty
+                && System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MILLIS)) {
+            sync();
+        }
+    }
+
+    /**
+    * Forca os bytes escritos para o disco
+     */
+    private void sync() {
+        try {
+            channel.force(false);
+            syncs++;
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar ranking: " + e.getMessage());
+        }
+        dirty = false;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+    * Deixa de aceitar pontuacoes, escreve as pendentes, faz fsync e fecha o ficheiro
+     */
+    @Override
+    public void close() {
+        if (!running && !thread.isAlive()) {
+            return;
+        }
+        // Espera pelos submit a decorrer: o que aceitaram ja esta na fila e e escrito
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        queue.offer(WAKE); // Se a fila estiver cheia, a thread ja esta acordada
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+    * Descreve o trabalho feito pelo escritor
+    * @return Pontuacoes escritas, grupos, fsyncs e pontuacoes perdidas
+     */
+    public synchronized String stats() {
+        return String.format(Locale.ROOT, "%d pontuacoes em %d grupos, %d fsyncs, %d perdidas",
+            written - failed, batches, syncs, failed);
+    }
+}
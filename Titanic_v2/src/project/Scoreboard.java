@@ -1,11 +1,12 @@
 package project;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
-import java.util.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
 /**
  * Janela de pontuacoes que mostra os rankings.
@@ -28,59 +29,33 @@ public class Scoreboard extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
-        // Define os nomes das colunas da tabela
-        String[] columnNames = { "Name", "Score" };
+        // Tabela vazia ate o modelo com os jogadores estar pronto (ver loadScores)
+        JTable table = new JTable(new ScoreTableModel(new String[0], new int[0], 0));
+        JScrollPane scrollPane = new JScrollPane(table);
 
-        // Cria o modelo da tabela (nao editavel)
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
+        // Clicar no cabecalho de uma coluna ordena por ela (outro clique inverte)
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Impede edicao das celulas
-            }
-        };
-
-        // HashMap para armazenar apenas a melhor pontuacao de cada jogador
-        java.util.Map<String, Integer> bestScores = new HashMap<>();
-
-        try {
-            File file = new File("ranking.txt");
-            if (file.exists()) {
-                Scanner scanner = new Scanner(file);
-                while (scanner.hasNextLine()) {
-                    String line = scanner.nextLine();
-                    if (line.trim().isEmpty()) continue;
-
-                    String[] parts = line.split(";");
-                    if (parts.length == 2) {
-                        String name = parts[0];
-                        int points = Integer.parseInt(parts[1]);
-                        if (!bestScores.containsKey(name) || points > bestScores.get(name)) {
-                            bestScores.put(name, points);
-                        }
-                    }
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    ((ScoreTableModel) table.getModel()).sortBy(table.convertColumnIndexToModel(column));
                 }
-                scanner.close();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        // Cria uma lista de objetos Score para ordenacao
-        ArrayList<Score> scoreList = new ArrayList<>();
-        for (java.util.Map.Entry<String, Integer> entry : bestScores.entrySet()) {
-            scoreList.add(new Score(entry.getKey(), entry.getValue()));
-        }
-
-        // Ordena do maior para o menor
-        scoreList.sort((s1, s2) -> Integer.compare(s2.points, s1.points));
+        });
 
-        // Adiciona cada pontuacao a tabela
-        for (Score s : scoreList) {
-            model.addRow(new Object[] { s.name, s.points });
-        }
+        // Campo para mostrar so os jogadores cujo nome comeca pelo texto escrito
+        JTextField filterField = new JTextField();
+        filterField.setToolTipText("Filter by name");
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { filter(); }
+            @Override public void removeUpdate(DocumentEvent e) { filter(); }
+            @Override public void changedUpdate(DocumentEvent e) { filter(); }
 
-        JTable table = new JTable(model);
-        JScrollPane scrollPane = new JScrollPane(table);
+            private void filter() {
+                ((ScoreTableModel) table.getModel()).setPrefix(filterField.getText());
+            }
+        });
 
         JButton backButton = new JButton("Back to Menu");
         backButton.addActionListener(new ActionListener() {
@@ -91,10 +66,84 @@ public class Scoreboard extends JFrame {
             }
         });
 
-        add(new JLabel("TOP PLAYERS", SwingConstants.CENTER), BorderLayout.NORTH);
+        JLabel titleLabel = new JLabel("TOP PLAYERS", SwingConstants.CENTER);
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(titleLabel, BorderLayout.NORTH);
+        topPanel.add(filterField, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+        showPar(titleLabel);
         add(scrollPane, BorderLayout.CENTER);
         add(backButton, BorderLayout.SOUTH);
 
         setVisible(true);
+        loadScores(table, filterField);
+    }
+
+    /**
+     * Atualiza o indice do ranking e cria o modelo da tabela numa thread de fundo
+     * (com muitos jogadores, ordenar demora), mostrando-o quando estiver pronto
+     * @param table Tabela das pontuacoes
+     * @param filterField Campo do filtro por nome (aplicado ao modelo novo)
+     */
+    private void loadScores(JTable table, JTextField filterField) {
+        new SwingWorker<ScoreTableModel, Void>() {
+            @Override
+            protected ScoreTableModel doInBackground() {
+                // Espera que a pontuacao acabada de guardar chegue ao ficheiro (sem esperar pelo fsync)
+                ScoreWriter.shared().awaitWritten();
+                // O indice do ranking so le as linhas acrescentadas desde a ultima vez
+                RankingService ranking = RankingService.shared();
+                ranking.refresh();
+                // Modelo com todos os jogadores em arrays primitivos: a tabela so pede as linhas visiveis
+                return ScoreTableModel.fromRanking(ranking);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    ScoreTableModel model = get();
+                    model.setPrefix(filterField.getText());
+                    table.setModel(model);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Calcula o par (vidas no fim do jogo seguindo sempre o melhor caminho)
+     * numa thread de fundo e mostra-o no titulo da tabela
+     * O RouteSolver guarda o par de cada nivel, por isso so a primeira tabela o calcula
+     * @param titleLabel Etiqueta do titulo
+     */
+    private void showPar(JLabel titleLabel) {
+        java.util.List<String> levelFiles = engine != null ? engine.getLevelFiles() : GameEngine.defaultLevelFiles();
+        new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() throws Exception {
+                return RouteSolver.par(levelFiles, GameEngine.STARTING_LIVES);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    int[] par = get();
+                    int total = par.length > 0 ? par[par.length - 1] : -1;
+                    if (total < 0) {
+                        return; // Algum nivel nao tem caminho: nao ha par
+                    }
+                    titleLabel.setText("TOP PLAYERS  (par: " + total + ")");
+                    // O par de cada nivel aparece ao passar o rato no titulo
+                    StringBuilder tip = new StringBuilder("<html>");
+                    for (int i = 0; i < par.length; i++) {
+                        tip.append("Level ").append(i + 1).append(": ").append(par[i]).append("<br>");
+                    }
+                    titleLabel.setToolTipText(tip.append("</html>").toString());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
     }
 }
@@ -0,0 +1,249 @@
+package project;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Classe Simulation - Corre a logica do jogo numa thread propria
+ * A interface grafica apenas envia comandos (Direction) para uma fila sem locks;
+ * esta thread e a unica que os consome, aplica as jogadas ao motor e ao mapa
+ * e publica um GameSnapshot para ser desenhado.
+ * Assim gravar pontuacoes ou mostrar dialogos nunca bloqueia a leitura do teclado.
+ *
+ * Jogadas repetidas seguidas (tecla mantida premida) sao agrupadas: todas sao
+ * aplicadas, mas e publicado um unico snapshot para o grupo. Nenhuma jogada e
+ * descartada, por isso o jogo (e o replay gravado) e o que o jogador escreveu.
+ *
+ * Os snapshots sao imutaveis: em vez do mapa vivo levam uma SnapshotGrid,
+ * uma vista copy-on-write das celulas. Ao observar um nivel o mapa e congelado
+ * (Map.freeze()) e cada snapshot copia apenas os blocos que mudaram, por isso
+ * o MapRenderer desenha sem locks e nunca espera pela simulacao (mesmo quando
+ * uma jogada carrega um nivel ou guarda a pontuacao).
+ *
+ * Uma excecao numa jogada e reportada e a simulacao continua a receber comandos.
+ */
+public class Simulation implements Runnable, CellListener {
+
+    // Motor do jogo (so e alterado por esta thread)
+    private final GameEngine engine;
+
+    // Fila de comandos: varios produtores, um unico consumidor
+    private final ConcurrentLinkedQueue<Direction> commands = new ConcurrentLinkedQueue<>();
+
+    // Quem recebe cada snapshot publicado (chamado na thread de simulacao)
+    private final Consumer<GameSnapshot> onSnapshot;
+
+    // Ultimo snapshot publicado
+    private volatile GameSnapshot latest;
+
+    // Indica se a simulacao deve continuar
+    private volatile boolean running;
+
+    // Thread de simulacao
+    private volatile Thread thread;
+
+    // Acao corrida na thread de simulacao depois de parar (ou null)
+    private volatile Runnable afterStop;
+
+    // Mapa cujas alteracoes estao a ser recolhidas
+    private Map observedMap;
+
+    // Vista das celulas do mapa observado no ultimo snapshot (null se nao ha mapa)
+    private SnapshotGrid cells;
+
+    // Celulas alteradas desde o ultimo snapshot
+    private int[] changed = new int[16];
+    private int changedCount;
+
+    // Numero do proximo snapshot
+    private long version;
+
+    /**
+    * Construtor da Simulation
+    * @param engine Motor do jogo
+    * @param onSnapshot Acao chamada com cada snapshot publicado
+     */
+    public Simulation(GameEngine engine, Consumer<GameSnapshot> onSnapshot) {
+        this.engine = engine;
+        this.onSnapshot = onSnapshot;
+        observe(engine.getCurrentMap());
+        latest = snapshot();
+    }
+
+    /**
+    * Obtem o ultimo snapshot publicado
+    * @return Estado mais recente do jogo
+     */
+    public GameSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+    * Envia uma jogada para a simulacao (pode ser chamado de qualquer thread)
+    * @param direction Direcao da jogada
+     */
+    public void submit(Direction direction) {
+        commands.offer(direction);
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+    * Inicia a thread de simulacao
+     */
+    public void start() {
+        running = true;
+        Thread t = new Thread(this, "simulation");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+    * Pede a paragem da simulacao (nao espera que termine)
+     */
+    public void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+    * Pede a paragem da simulacao e corre uma acao depois da ultima jogada
+    * A acao corre na thread de simulacao (ou ja, se a simulacao nunca comecou),
+    * por isso pode libertar o motor sem o alterar a meio de uma jogada
+    * @param action Acao a correr quando a simulacao parar
+     */
+    public void stop(Runnable action) {
+        afterStop = action;
+        if (thread == null) {
+            action.run();
+            return;
+        }
+        stop();
+    }
+
+    /**
+    * Ciclo da simulacao: consome comandos e publica snapshots
+     */
+    @Override
+    public void run() {
+        try {
+            loop();
+        } finally {
+            Runnable action = afterStop;
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Erro ao parar a simulacao: " + e);
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+    * Consome comandos e publica snapshots ate a simulacao parar
+     */
+    private void loop() {
+        while (running) {
+            Direction direction = commands.poll();
+            if (direction == null) {
+                // Fila vazia: espera ate chegar um comando
+                LockSupport.park(this);
+                continue;
+            }
+
+            try {
+                // Aplica a jogada e as jogadas iguais seguidas e publica um snapshot para o grupo
+                apply(direction);
+                while (commands.peek() == direction) {
+                    commands.poll();
+                    apply(direction);
+                }
+                publish();
+            } catch (RuntimeException e) {
+                // Reporta o erro em vez de terminar a thread (e o jogo) em silencio
+                System.err.println("Erro na simulacao: " + e);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+    * Aplica uma jogada ao motor do jogo
+    * @param direction Direcao da jogada
+     */
+    private void apply(Direction direction) {
+        engine.step(direction);
+        // Se o nivel mudou, passa a recolher as alteracoes do novo mapa
+        observe(engine.getCurrentMap());
+    }
+
+    /**
+    * Passa a recolher as alteracoes de um mapa (quando o nivel muda)
+    * @param map Mapa atual
+     */
+    private void observe(Map map) {
+        if (map == observedMap) {
+            return;
+        }
+        if (observedMap != null) {
+            observedMap.setCellListener(null);
+        }
+        observedMap = map;
+        changedCount = 0;
+        cells = null;
+        if (map != null) {
+            map.setCellListener(this);
+            // A partir daqui as celulas atuais nunca mudam e podem ser partilhadas com a interface
+            cells = new SnapshotGrid(map.freeze());
+        }
+    }
+
+    /**
+    * Guarda uma celula alterada para o proximo snapshot
+    * @param row Linha da celula
+    * @param col Coluna da celula
+     */
+    @Override
+    public void cellChanged(int row, int col) {
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changed.length * 2);
+        }
+        changed[changedCount++] = row * observedMap.getGrid().getWidth() + col;
+    }
+
+    /**
+    * Cria e publica um snapshot com o estado atual
+     */
+    private void publish() {
+        GameSnapshot snapshot = snapshot();
+        latest = snapshot;
+        onSnapshot.accept(snapshot);
+    }
+
+    /**
+    * Cria um snapshot com o estado atual e limpa as celulas alteradas
+    * @return Novo snapshot
+     */
+    private GameSnapshot snapshot() {
+        Map map = engine.getCurrentMap();
+        Boat boat = map == null ? null : map.getBoat();
+        if (cells != null) {
+            // Copia para a vista apenas os blocos das celulas que mudaram
+            cells = cells.with(observedMap.getGrid(), changed, changedCount);
+        }
+        int[] changedCells = Arrays.copyOf(changed, changedCount);
+        changedCount = 0;
+        return new GameSnapshot(version++, cells, engine.getCurrentLevel(), engine.getLives(),
+            boat == null ? 0 : boat.getRow(), boat == null ? 0 : boat.getCol(),
+            engine.isFinished(), changedCells);
+    }
+}
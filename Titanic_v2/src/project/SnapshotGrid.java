@@ -0,0 +1,135 @@
+package project;
+
+/**
+ * Classe SnapshotGrid - Vista imutavel das celulas do mapa num GameSnapshot
+ * A grelha base e o mapa tal como estava ao comecar a ser observado pela
+ * simulacao (Map.freeze()) e nunca mais e alterada. As celulas que mudaram
+ * depois ficam em blocos de 64x64 copiados por cima da base.
+ *
+ * Cada nova versao (with) copia apenas os blocos que mudaram e a linha de
+ * blocos onde estao; os restantes sao partilhados com a versao anterior.
+ * Uma versao publicada nunca e alterada, por isso a interface grafica pode
+ * le-la noutra thread sem locks enquanto a simulacao continua a jogar.
+ */
+public final class SnapshotGrid implements GridView {
+
+    // Tamanho de um bloco (64 celulas de lado)
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE - 1;
+
+    // Grelha do nivel no momento em que foi congelada (nunca e alterada)
+    private final GridView base;
+
+    // Blocos alterados por linha e coluna de blocos (null = igual a base)
+    private final char[][][] tiles;
+
+    /**
+    * Construtor da primeira versao de um nivel (igual a base)
+    * @param base Grelha congelada do nivel
+     */
+    public SnapshotGrid(GridView base) {
+        this(base, new char[(base.getHeight() + TILE - 1) >> TILE_SHIFT][][]);
+    }
+
+    /**
+    * Construtor de uma versao com os blocos indicados
+    * @param base Grelha congelada do nivel
+    * @param tiles Blocos alterados
+     */
+    private SnapshotGrid(GridView base, char[][][] tiles) {
+        this.base = base;
+        this.tiles = tiles;
+    }
+
+    /**
+    * Cria uma nova versao com celulas lidas do mapa vivo
+    * So deve ser chamado pela thread que altera o mapa (a simulacao)
+    * @param live Grelha atual do mapa
+    * @param cells Posicoes empacotadas das celulas a copiar
+    * @param count Numero de posicoes em cells
+    * @return Nova versao (ou esta, se nenhuma celula mudou)
+     */
+    public SnapshotGrid with(GridView live, int[] cells, int count) {
+        int width = base.getWidth();
+        char[][][] next = null;
+        for (int i = 0; i < count; i++) {
+            int row = cells[i] / width;
+            int col = cells[i] % width;
+            char symbol = live.get(row, col);
+            // Celulas so redesenhadas (barco) nao obrigam a copiar o bloco
+            if (get(row, col) == symbol) {
+                continue;
+            }
+            if (next == null) {
+                next = tiles.clone();
+            }
+            int tileRow = row >> TILE_SHIFT;
+            int tileCol = col >> TILE_SHIFT;
+            char[][] oldRow = tiles[tileRow];
+            // A linha de blocos e copiada uma vez por versao
+            if (next[tileRow] == oldRow) {
+                next[tileRow] = oldRow != null ? oldRow.clone()
+                    : new char[(width + TILE - 1) >> TILE_SHIFT][];
+            }
+            // O bloco tambem e copiado uma vez por versao (da versao anterior ou da base)
+            char[] oldTile = oldRow == null ? null : oldRow[tileCol];
+            if (next[tileRow][tileCol] == oldTile) {
+                next[tileRow][tileCol] = oldTile != null ? oldTile.clone() : copyFromBase(tileRow, tileCol);
+            }
+            next[tileRow][tileCol][((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK)] = symbol;
+        }
+        return next == null ? this : new SnapshotGrid(base, next);
+    }
+
+    /**
+    * Verifica se duas versoes sao do mesmo nivel
+    * @param other Outra versao (pode ser null)
+    * @return true se partilham a mesma grelha base
+     */
+    public boolean sameLevel(SnapshotGrid other) {
+        return other != null && other.base == base;
+    }
+
+    /**
+    * Copia um bloco da grelha base
+    * @param tileRow Linha do bloco
+    * @param tileCol Coluna do bloco
+    * @return Celulas do bloco (as que ficam fora da grelha nao sao usadas)
+     */
+    private char[] copyFromBase(int tileRow, int tileCol) {
+        char[] tile = new char[TILE * TILE];
+        int firstRow = tileRow << TILE_SHIFT;
+        int firstCol = tileCol << TILE_SHIFT;
+        int rows = Math.min(TILE, base.getHeight() - firstRow);
+        int cols = Math.min(TILE, base.getWidth() - firstCol);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                tile[(r << TILE_SHIFT) | c] = base.get(firstRow + r, firstCol + c);
+            }
+        }
+        return tile;
+    }
+
+    @Override
+    public int getWidth() {
+        return base.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return base.getHeight();
+    }
+
+    @Override
+    public char get(int row, int col) {
+        char[][] tileRow = tiles[row >> TILE_SHIFT];
+        if (tileRow != null) {
+            char[] tile = tileRow[col >> TILE_SHIFT];
+            if (tile != null) {
+                return tile[((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK)];
+            }
+        }
+        return base.get(row, col);
+    }
+}
@@ -0,0 +1,166 @@
+package project;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Classe SpriteAtlas - Imagens dos elementos do jogo partilhadas por toda a aplicacao
+ * As imagens sao lidas uma unica vez do classpath (/resources/icons).
+ * Para cada tamanho de celula (nivel de zoom) e criada uma tira com todas as imagens
+ * ja redimensionadas, numa imagem compativel com o ecra. Desenhar uma celula e
+ * apenas um drawImage de uma zona dessa tira, sem descodificar nem redimensionar.
+ */
+public final class SpriteAtlas {
+
+    // Indices das imagens na tira
+    public static final int BOAT = 0;
+    public static final int ISLAND = 1;
+    public static final int ROCK = 2;
+    public static final int MERMAID = 3;
+    public static final int PIRATE = 4;
+    public static final int VORTEX = 5;
+    public static final int EXPLOSIVE = 6;
+
+    // Ficheiros das imagens, pela ordem dos indices
+    private static final String[] FILES = {
+        "boat.png", "island.png", "iceberg.png", "mermaid.png", "pirate.png", "vortex.png", "explosive.png"
+    };
+
+    // Numero maximo de tamanhos guardados (evita acumular tiras ao redimensionar a janela)
+    private static final int MAX_SIZES = 8;
+
+    /**
+     * Instancia unica, criada apenas quando e usada pela primeira vez
+     */
+    private static class Holder {
+        static final SpriteAtlas INSTANCE = new SpriteAtlas();
+    }
+
+    // Imagens originais lidas do classpath (null se faltar alguma)
+    private final BufferedImage[] originals = new BufferedImage[FILES.length];
+
+    // Tiras ja redimensionadas, por tamanho de celula (largura << 32 | altura)
+    private final LinkedHashMap<Long, BufferedImage> strips =
+        new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Long, BufferedImage> eldest) {
+                return size() > MAX_SIZES;
+            }
+        };
+
+    /**
+    * Construtor privado: le as imagens do classpath
+     */
+    private SpriteAtlas() {
+        for (int i = 0; i < FILES.length; i++) {
+            try (InputStream in = SpriteAtlas.class.getResourceAsStream("/resources/icons/" + FILES[i])) {
+                if (in == null) {
+                    System.err.println("Imagem nao encontrada: " + FILES[i]);
+                    continue;
+                }
+                originals[i] = ImageIO.read(in);
+            } catch (IOException e) {
+                System.err.println("Erro ao ler imagem " + FILES[i] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+    * Obtem o atlas partilhado
+    * @return Instancia unica do SpriteAtlas
+     */
+    public static SpriteAtlas get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+    * Obtem o indice da imagem de um simbolo do mapa
+    * @param symbol Simbolo da celula
+    * @return Indice da imagem, ou -1 se a celula nao tiver imagem
+     */
+    public static int spriteFor(char symbol) {
+        switch (symbol) {
+            case 'R': return ROCK;      // Rocha
+            case 'I': return ISLAND;    // Ilha
+            case 'P': return PIRATE;    // Pirata
+            case 'M': return MERMAID;   // Sereia
+            case 'V': return VORTEX;    // Vortice
+            case 'E': return EXPLOSIVE; // Explosivo
+            default: return -1;         // Agua, fora do mapa, etc.
+        }
+    }
+
+    /**
+    * Desenha uma imagem a ocupar uma celula
+    * @param g Contexto grafico
+    * @param sprite Indice da imagem
+    * @param x Coordenada x da celula
+    * @param y Coordenada y da celula
+    * @param cellW Largura da celula
+    * @param cellH Altura da celula
+     */
+    public void draw(Graphics g, int sprite, int x, int y, int cellW, int cellH) {
+        BufferedImage strip = strip(cellW, cellH);
+        int sx = sprite * cellW;
+        g.drawImage(strip, x, y, x + cellW, y + cellH, sx, 0, sx + cellW, cellH, null);
+    }
+
+    /**
+    * Obtem (ou cria) a tira de imagens para um tamanho de celula
+    * @param cellW Largura da celula
+    * @param cellH Altura da celula
+    * @return Tira com todas as imagens lado a lado
+     */
+    private synchronized BufferedImage strip(int cellW, int cellH) {
+        long key = ((long) cellW << 32) | cellH;
+        BufferedImage strip = strips.get(key);
+        if (strip == null) {
+            strip = buildStrip(cellW, cellH);
+            strips.put(key, strip);
+        }
+        return strip;
+    }
+
+    /**
+    * Cria a tira de imagens redimensionadas para um tamanho de celula
+    * Cada imagem mantem a proporcao e fica centrada no seu espaco
+    * @param cellW Largura da celula
+    * @param cellH Altura da celula
+    * @return Nova tira
+     */
+    private BufferedImage buildStrip(int cellW, int cellH) {
+        BufferedImage strip = createImage(cellW * FILES.length, cellH);
+        Graphics2D g = strip.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        for (int i = 0; i < FILES.length; i++) {
+            BufferedImage img = originals[i];
+            if (img == null) {
+                continue;
+            }
+            double scale = Math.min((double) cellW / img.getWidth(), (double) cellH / img.getHeight());
+            int w = Math.max(1, (int) (img.getWidth() * scale));
+            int h = Math.max(1, (int) (img.getHeight() * scale));
+            g.drawImage(img, i * cellW + (cellW - w) / 2, (cellH - h) / 2, w, h, null);
+        }
+        g.dispose();
+        return strip;
+    }
+
+    /**
+    * Cria uma imagem transparente no formato do ecra (desenho acelerado)
+    * @param width Largura
+    * @param height Altura
+    * @return Imagem vazia
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+            .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
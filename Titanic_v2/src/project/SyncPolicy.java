@@ -0,0 +1,14 @@
+package project;
+
+/**
+ * Enum SyncPolicy - Quando o ScoreWriter forca as pontuacoes para o disco (fsync)
+ * NONE deixa o sistema operativo decidir; BATCH forca depois de cada grupo
+ * escrito (nenhuma pontuacao confirmada se perde, mas cada grupo espera pelo
+ * disco); PERIODIC forca no maximo uma vez por intervalo (perde-se no maximo
+ * esse intervalo se a maquina for abaixo).
+ */
+public enum SyncPolicy {
+    NONE,
+    BATCH,
+    PERIODIC
+}
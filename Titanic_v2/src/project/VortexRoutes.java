@@ -0,0 +1,141 @@
+package project;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe VortexRoutes - Tabela de encaminhamento dos vortices
+ * Associa a posicao empacotada de cada vortice a posicao do vortice de destino,
+ * numa IntIntHashMap construida ao carregar o nivel (consulta em O(1)).
+ *
+ * Por omissao cada vortice leva ao primeiro outro vortice do mapa (ordem de leitura).
+ * O ficheiro do nivel pode declarar outras rotas em linhas comecadas por '@':
+ * - "@pair 1,4 5,1"         os dois vortices levam um ao outro
+ * - "@cycle 1,4 5,1 3,3"    cada vortice leva ao seguinte e o ultimo ao primeiro
+ * - "@oneway 1,4 5,1"       o primeiro leva ao segundo (o segundo mantem a sua rota)
+ * As coordenadas sao "linha,coluna" a contar de 0.
+ */
+public class VortexRoutes {
+
+    // Posicao do vortice -> posicao do vortice de destino
+    private final IntIntHashMap table;
+
+    /**
+    * Construtor do VortexRoutes
+    * @param entities Indice dos elementos do mapa (para encontrar os vortices)
+    * @param links Rotas declaradas no nivel, em pares (origem, destino) empacotados
+     */
+    public VortexRoutes(EntityIndex entities, int[] links) {
+        int count = entities.count('V');
+        table = new IntIntHashMap(count);
+
+        // Rota por omissao: o primeiro vortice diferente do atual
+        for (int i = 0; i < count; i++) {
+            int from = entities.get('V', i);
+            for (int j = 0; j < count; j++) {
+                int to = entities.get('V', j);
+                if (to != from) {
+                    table.put(from, to);
+                    break;
+                }
+            }
+        }
+
+        // Rotas declaradas no ficheiro substituem as rotas por omissao
+        for (int i = 0; i + 1 < links.length; i += 2) {
+            if (!table.containsKey(links[i]) || !table.containsKey(links[i + 1])) {
+                System.err.println("Rota de vortice ignorada: as duas posicoes tem de ser vortices");
+                continue;
+            }
+            table.put(links[i], links[i + 1]);
+        }
+    }
+
+    /**
+    * Obtem o vortice de destino de um vortice
+    * @param packed Posicao empacotada do vortice de origem
+    * @return Posicao empacotada do destino, ou -1 se o vortice nao tem rota
+     */
+    public int destination(int packed) {
+        return table.get(packed, -1);
+    }
+
+    /**
+    * Converte as linhas de rotas do ficheiro do nivel em pares (origem, destino)
+    * @param directives Linhas comecadas por '@'
+    * @param width Largura do mapa (para empacotar as posicoes)
+    * @param height Altura do mapa
+    * @return Array com os pares origem/destino empacotados
+    * @throws IllegalArgumentException Se alguma linha estiver mal formada ou fora do mapa
+     */
+    public static int[] parse(List<String> directives, int width, int height) {
+        ArrayList<Integer> links = new ArrayList<>();
+        for (String line : directives) {
+            String[] parts = line.trim().split("\\s+");
+            int[] positions = new int[parts.length - 1];
+            for (int i = 1; i < parts.length; i++) {
+                String[] rc = parts[i].split(",");
+                if (rc.length != 2) {
+                    throw new IllegalArgumentException("Posicao invalida: " + parts[i]);
+                }
+                int row = Integer.parseInt(rc[0].trim());
+                int col = Integer.parseInt(rc[1].trim());
+                // Uma posicao fora do mapa seria empacotada como outra celula
+                if (row < 0 || row >= height || col < 0 || col >= width) {
+                    throw new IllegalArgumentException("Posicao invalida: " + parts[i]);
+                }
+                positions[i - 1] = row * width + col;
+            }
+
+            switch (parts[0]) {
+                case "@pair":
+                    requireCount(line, positions, 2);
+                    addLink(links, positions[0], positions[1]);
+                    addLink(links, positions[1], positions[0]);
+                    break;
+                case "@oneway":
+                    requireCount(line, positions, 2);
+                    addLink(links, positions[0], positions[1]);
+                    break;
+                case "@cycle":
+                    if (positions.length < 2) {
+                        throw new IllegalArgumentException("Ciclo com menos de 2 vortices: " + line);
+                    }
+                    for (int i = 0; i < positions.length; i++) {
+                        addLink(links, positions[i], positions[(i + 1) % positions.length]);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Rota desconhecida: " + line);
+            }
+        }
+
+        int[] result = new int[links.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = links.get(i);
+        }
+        return result;
+    }
+
+    /**
+    * Verifica se uma rota tem o numero de posicoes esperado
+    * @param line Linha da rota (para a mensagem de erro)
+    * @param positions Posicoes lidas
+    * @param expected Numero de posicoes esperado
+     */
+    private static void requireCount(String line, int[] positions, int expected) {
+        if (positions.length != expected) {
+            throw new IllegalArgumentException("Numero de posicoes invalido: " + line);
+        }
+    }
+
+    /**
+    * Adiciona um par origem/destino a lista de rotas
+    * @param links Lista de rotas
+    * @param from Posicao de origem
+    * @param to Posicao de destino
+     */
+    private static void addLink(ArrayList<Integer> links, int from, int to) {
+        links.add(from);
+        links.add(to);
+    }
+}
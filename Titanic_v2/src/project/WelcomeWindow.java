@@ -18,6 +18,9 @@ public class WelcomeWindow extends JFrame {
     
     // Botao para iniciar o jogo
     private JButton startButton;
+
+    // Opcao para jogar no modo ciclo de jogo (desenho ativo com passo fixo)
+    private JCheckBox gameLoopBox;
     
     // Variavel que armazena o nome do jogador
     private String playerName;
@@ -30,8 +33,8 @@ public class WelcomeWindow extends JFrame {
         // Define o titulo da janela
         setTitle("Welcome to Titanic");
         
-        // Define o tamanho da janela (largura: 300px, altura: 150px)
-        setSize(300, 150);
+        // Define o tamanho da janela (largura: 300px, altura: 180px)
+        setSize(300, 180);
         
         // Define que a aplicacao deve fechar quando a janela for fechada
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -39,8 +42,8 @@ public class WelcomeWindow extends JFrame {
         // Centraliza a janela no ecra
         setLocationRelativeTo(null);
 
-        // Cria um painel com layout em grelha (4 linhas, 1 coluna)
-        JPanel panel = new JPanel(new GridLayout(4, 1));
+        // Cria um painel com layout em grelha (5 linhas, 1 coluna)
+        JPanel panel = new JPanel(new GridLayout(5, 1));
 
         // Cria uma etiqueta (label) com texto informativo
         JLabel label = new JLabel("Enter your name:");
@@ -48,6 +51,9 @@ public class WelcomeWindow extends JFrame {
         // Cria o campo de texto para o jogador inserir o nome
         nameField = new JTextField();
         
+        // Cria a opcao do modo ciclo de jogo (desligada por omissao)
+        gameLoopBox = new JCheckBox("Game loop mode");
+
         // Cria o botao "Start"
         startButton = new JButton("Start");
 
@@ -90,6 +96,7 @@ public class WelcomeWindow extends JFrame {
         // Adiciona os componentes ao painel na ordem vertical
         panel.add(label);           // Adiciona a etiqueta "Enter your name:"
         panel.add(nameField);       // Adiciona o campo de texto
+        panel.add(gameLoopBox);     // Adiciona a opcao do modo ciclo de jogo
         panel.add(startButton);     // Adiciona o botão Start
         panel.add(scoreButton);     // Adiciona o botão Ver Pontuacoes
 
@@ -105,25 +112,15 @@ public class WelcomeWindow extends JFrame {
     * Carrega todos os niveis e cria as instancias necessarias para comecar a jogar
      */
     private void startGame() {
-        // Cria uma lista para armazenar os caminhos dos ficheiros de niveis
-        ArrayList<String> levelFiles = new ArrayList<>();
-        
-        // Adiciona o caminho de cada nivel a lista
-        levelFiles.add("src/resources/levels/level1.txt");
-        levelFiles.add("src/resources/levels/level2.txt");
-        levelFiles.add("src/resources/levels/level3.txt");
-        levelFiles.add("src/resources/levels/level4.txt");
-        levelFiles.add("src/resources/levels/level5.txt");
+        // Obtem os caminhos dos ficheiros dos niveis do jogo
+        ArrayList<String> levelFiles = GameEngine.defaultLevelFiles();
 
         // Cria uma instancia do GameEngine com os niveis e o nome do jogador
         GameEngine engine = new GameEngine(levelFiles, playerName);
         
-        // Obtem o mapa atual do motor do jogo
-        Map map = engine.getCurrentMap();
-        
         // Cria e mostra a interface grafica do jogo (GUI)
-        // Passa o mapa, o motor do jogo e o nome do jogador
-        new GUI(map, engine, playerName);
+        // Passa o motor do jogo (com o mapa atual), o nome do jogador e o modo escolhido
+        new GUI(engine, playerName, gameLoopBox.isSelected());
     }
 
     /**
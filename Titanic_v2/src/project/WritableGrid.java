@@ -0,0 +1,17 @@
+package project;
+
+/**
+ * Interface WritableGrid - Grelha do mapa que pode ser alterada
+ * Implementada pela grelha em memoria (Grid) e pela grelha paginada
+ * em blocos carregados do disco (ChunkedGrid)
+ */
+public interface WritableGrid extends GridView {
+
+    /**
+    * Altera o simbolo de uma celula
+    * @param row Linha da celula
+    * @param col Coluna da celula
+    * @param symbol Novo simbolo
+     */
+    void set(int row, int col, char symbol);
+}
@@ -0,0 +1,119 @@
+package project;
+
+/**
+ * Classe IntIntHashMapTest - Verifica a dispersao do IntIntHashMap
+ * Insere posicoes empacotadas (linha * largura + coluna) com larguras potencia
+ * de 2, como as do OverlayGrid, do FreeCells e do EntityIndex, e confirma que
+ * todas as chaves sao encontradas e que as sequencias de sondagem ficam curtas.
+ * Uso: java project.IntIntHashMapTest (termina com codigo 1 se alguma verificacao falhar)
+ */
+public class IntIntHashMapTest {
+
+    // Media maxima de entradas visitadas por chave (a tabela fica no maximo meio cheia)
+    private static final double MAX_AVERAGE_PROBES = 3.0;
+
+    // Maior sequencia de sondagem aceite para uma chave
+    private static final int MAX_PROBES = 64;
+
+    // Numero de verificacoes que falharam
+    private static int failures;
+
+    /**
+    * Corre todas as verificacoes
+    * @param args Ignorados
+     */
+    public static void main(String[] args) {
+        for (int width : new int[] {64, 256, 1024, 4096, 65536}) {
+            // Uma coluna por linha: chaves multiplas da largura
+            checkStrided("coluna 0, largura " + width, width, 20000 * 64 / width + 1000, 1, width);
+            // Um bloco de 8 colunas espacadas de 8 em cada linha
+            checkStrided("colunas de 8 em 8, largura " + width, width, 2000, 8, 8);
+        }
+        // Chaves potencia de 2 multiplicadas por um passo grande
+        checkKeys("passo 1 << 16", stridedKeys(1 << 16, 30000));
+        checkKeys("passo 1 << 20", stridedKeys(1 << 20, 2000));
+
+        if (failures > 0) {
+            System.err.println(failures + " verificacoes falharam");
+            System.exit(1);
+        }
+        System.out.println("IntIntHashMap: todas as verificacoes passaram");
+    }
+
+    /**
+    * Verifica as posicoes empacotadas de varias linhas e colunas de uma grelha
+    * @param name Descricao do caso
+    * @param width Largura da grelha
+    * @param rows Numero de linhas
+    * @param cols Colunas por linha
+    * @param colStep Distancia entre colunas
+     */
+    private static void checkStrided(String name, int width, int rows, int cols, int colStep) {
+        // Linhas limitadas para as posicoes caberem num int
+        rows = Math.min(rows, Integer.MAX_VALUE / width);
+        int[] keys = new int[rows * cols];
+        int n = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                keys[n++] = r * width + c * colStep;
+            }
+        }
+        checkKeys(name, keys);
+    }
+
+    /**
+    * Gera chaves com um passo fixo
+    * @param step Distancia entre chaves
+    * @param count Numero de chaves
+    * @return Chaves 0, step, 2 * step, ...
+     */
+    private static int[] stridedKeys(int step, int count) {
+        count = Math.min(count, Integer.MAX_VALUE / step);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i * step;
+        }
+        return keys;
+    }
+
+    /**
+    * Insere as chaves e verifica os valores e o comprimento das sondagens
+    * @param name Descricao do caso
+    * @param keys Chaves distintas e nao negativas
+     */
+    private static void checkKeys(String name, int[] keys) {
+        IntIntHashMap map = new IntIntHashMap(16);
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        if (map.size() != keys.length) {
+            fail(name, "tamanho " + map.size() + " em vez de " + keys.length);
+            return;
+        }
+        long total = 0;
+        int longest = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (map.get(keys[i], -1) != i) {
+                fail(name, "valor errado para a chave " + keys[i]);
+                return;
+            }
+            int probes = map.probeLength(keys[i]);
+            total += probes;
+            longest = Math.max(longest, probes);
+        }
+        double average = (double) total / keys.length;
+        if (average > MAX_AVERAGE_PROBES || longest > MAX_PROBES) {
+            fail(name, String.format("sondagem media %.2f, maior %d", average, longest));
+        }
+    }
+
+    /**
+    * Regista uma verificacao que falhou
+    * @param name Descricao do caso
+    * @param message O que correu mal
+     */
+    private static void fail(String name, String message) {
+        failures++;
+        System.err.println("FALHOU " + name + ": " + message);
+    }
+}